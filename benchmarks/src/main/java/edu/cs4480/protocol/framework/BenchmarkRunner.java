@@ -0,0 +1,34 @@
+package edu.cs4480.protocol.framework;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Entry point of benchmarks.jar.  Takes the usual JMH command line, but
+ * writes results as JSON to jmh-result.json unless -rf/-rff say otherwise,
+ * so runs from different versions can be compared.
+ */
+public class BenchmarkRunner
+{
+    public static void main(String[] argv) throws Exception
+    {
+        CommandLineOptions cmd = new CommandLineOptions(argv);
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(cmd);
+
+        if (!cmd.getResultFormat().hasValue())
+        {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmd.getResult().hasValue())
+        {
+            builder.result("jmh-result.json");
+        }
+
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+}
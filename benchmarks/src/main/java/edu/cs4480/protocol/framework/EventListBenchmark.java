@@ -0,0 +1,94 @@
+package edu.cs4480.protocol.framework;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Throughput of the EventList operations the simulator uses, with "depth"
+ * events pending.  Each benchmark puts back what it takes out, so the
+ * depth stays constant.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventListBenchmark
+{
+    @Param({"heap", "vector"})
+    public String impl;
+
+    @Param({"16", "256", "4096"})
+    public int depth;
+
+    private EventList events;
+    private Random rand;
+
+    @Setup(Level.Iteration)
+    public void setup()
+    {
+        events = impl.equals("heap") ? new HeapEventList()
+                                     : new EventListImpl();
+        rand = new Random(depth);
+
+        Packet packet = new BinaryPacket(1, 0, 0, "aaaaaaaaaaaaaaaaaaaa");
+        for (int i = 0; i < depth - 1; i++)
+        {
+            double t = 1000.0 * rand.nextDouble();
+            if (i % 8 == 0)
+            {
+                events.add(new Event(t, NetworkSimulator.FROM_LAYER_5,
+                                     NetworkSimulator.A));
+            }
+            else
+            {
+                events.add(new Event(t, NetworkSimulator.FROM_LAYER_3,
+                                     i & 1, packet));
+            }
+        }
+        events.add(new Event(500.0, NetworkSimulator.TIMER_INTERRUPT,
+                             NetworkSimulator.A));
+    }
+
+    // Removes the next event and schedules it again further in the future
+    @Benchmark
+    public Event removeNextAndAdd()
+    {
+        Event next = events.removeNext();
+        next.setTime(next.getTime() + 1000.0 * rand.nextDouble());
+        events.add(next);
+        return next;
+    }
+
+    // What NetworkSimulator.stopTimer() followed by startTimer() costs
+    @Benchmark
+    public Event restartTimer()
+    {
+        Event timer = events.removeTimer(NetworkSimulator.A);
+        Event restarted = new Event(timer.getTime() + 1.0,
+                                    NetworkSimulator.TIMER_INTERRUPT,
+                                    NetworkSimulator.A);
+        events.add(restarted);
+        return timer;
+    }
+
+    @Benchmark
+    public double getLastPacketTime()
+    {
+        return events.getLastPacketTime(NetworkSimulator.B);
+    }
+}
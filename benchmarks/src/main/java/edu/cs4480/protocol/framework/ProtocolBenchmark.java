@@ -0,0 +1,114 @@
+package edu.cs4480.protocol.framework;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * The per-packet work of the Go-Back-N protocol, without the simulator
+ * around it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtocolBenchmark
+{
+    private static final String PAYLOAD = "aaaaaaaaaaaaaaaaaaaa";
+
+    @Param({"8", "64", "1024"})
+    public int window;
+
+    private Harness sender;
+    private Message message;
+    private Packet good;
+    private Packet corrupt;
+    private int nextSeq;
+
+    // Drops everything the protocol hands to the simulator, so that only
+    // the protocol's own bookkeeping is measured
+    static class Harness extends StudentNetworkSimulator
+    {
+        Harness()
+        {
+            super(1, 0.0, 0.0, 1.0, 0, 1);
+        }
+
+        protected void toLayer3(int callingEntity, Packet p)
+        {
+        }
+
+        protected void toLayer5(int entity, String dataSent)
+        {
+        }
+
+        protected TimerHandle startTimer(int entity, double increment)
+        {
+            return null;
+        }
+
+        protected void stopTimer(int entity)
+        {
+        }
+    }
+
+    @Setup
+    public void setup()
+    {
+        LogManager.getRootLogger().setLevel(Level.OFF);
+
+        sender = new Harness();
+        sender.setWindowSize(window);
+        sender.aInit();
+        nextSeq = 1;
+
+        message = new Message(PAYLOAD);
+        int check = sender.getChecksum(7, 0, PAYLOAD);
+        good = new BinaryPacket(7, 0, ~check, PAYLOAD);
+        corrupt = new BinaryPacket(7, 0, ~check, "?a");
+    }
+
+    @Benchmark
+    public int getChecksum()
+    {
+        return sender.getChecksum(7, 0, PAYLOAD);
+    }
+
+    @Benchmark
+    public boolean isCorruptedGood()
+    {
+        return sender.isCorrupted(good);
+    }
+
+    @Benchmark
+    public boolean isCorruptedBad()
+    {
+        return sender.isCorrupted(corrupt);
+    }
+
+    // Fills the window, then slides it with one cumulative ACK
+    @Benchmark
+    public void fillAndMoveWindow()
+    {
+        for (int i = 0; i < window; i++)
+        {
+            sender.aOutput(message);
+        }
+        nextSeq += window;
+        sender.moveWindow(new BinaryPacket(nextSeq - 1, 1, 0));
+    }
+}
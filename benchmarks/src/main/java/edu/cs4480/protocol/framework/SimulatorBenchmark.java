@@ -0,0 +1,100 @@
+package edu.cs4480.protocol.framework;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Whole runSimulator() runs of the Go-Back-N protocol.  The "events"
+ * counter reports simulator events dispatched per second alongside the
+ * runs per second JMH reports for the benchmark itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulatorBenchmark
+{
+    @Param({"10000"})
+    public int messages;
+
+    @Param({"0.0", "0.1", "0.3"})
+    public double loss;
+
+    @Param({"0.0", "0.1"})
+    public double corrupt;
+
+    @Param({"8", "64"})
+    public int window;
+
+    @Param({"false", "true"})
+    public boolean recycle;
+
+    @Param({"SEQUENTIAL", "PARALLEL"})
+    public Engine engine;
+
+    private PrintStream stdout;
+    private long seed;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters
+    {
+        public long events;
+    }
+
+    @Setup
+    public void setup()
+    {
+        // Per-packet logging and the simulator's timer warnings would
+        // otherwise dominate the measurement
+        LogManager.getRootLogger().setLevel(Level.OFF);
+        stdout = System.out;
+        System.setOut(new PrintStream(new OutputStream()
+        {
+            public void write(int b)
+            {
+            }
+        }));
+        seed = 1;
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public long runSimulator(Counters counters)
+    {
+        StudentNetworkSimulator simulator =
+            new StudentNetworkSimulator(messages, loss, corrupt, 10.0, 0,
+                                        seed++);
+        simulator.setWindowSize(window);
+        simulator.setEventRecycling(recycle);
+        simulator.setEngine(engine);
+        simulator.runSimulator();
+
+        counters.events += simulator.getEventCount();
+        return simulator.getEventCount();
+    }
+}
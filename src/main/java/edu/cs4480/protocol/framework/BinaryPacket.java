@@ -0,0 +1,200 @@
+package edu.cs4480.protocol.framework;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/*
+ * A Packet stored as a single byte array: a fixed header holding the
+ * seqnum, acknum, checksum and payload length as big-endian ints, followed
+ * by the payload bytes.
+ *
+ * A BinaryPacket cannot be modified (its setters return false), so the
+ * simulator hands the same object from sender to event to receiver
+ * without copying it.  Corrupting one in toLayer3 produces a corrupted
+ * copy.  The payload is not limited to MAX_DATA_SIZE, and getPayload()
+ * decodes it as ISO-8859-1 the first time it is called.
+ */
+public class BinaryPacket extends Packet
+{
+    public static final int SEQNUM_OFFSET = 0;
+    public static final int ACKNUM_OFFSET = 4;
+    public static final int CHECKSUM_OFFSET = 8;
+    public static final int LENGTH_OFFSET = 12;
+    public static final int HEADER_SIZE = 16;
+
+    private static final Charset CHARSET = Charset.forName("ISO-8859-1");
+
+    private final ByteBuffer data;
+    private String payload;
+
+    public BinaryPacket(int seq, int ack, int check, byte[] newPayload)
+    {
+        this(seq, ack, check, newPayload, 0,
+             (newPayload == null) ? 0 : newPayload.length);
+    }
+
+    public BinaryPacket(int seq, int ack, int check, byte[] newPayload,
+                        int offset, int length)
+    {
+        super(seq, ack, check);
+        data = ByteBuffer.allocate(HEADER_SIZE + length);
+        data.putInt(SEQNUM_OFFSET, seq);
+        data.putInt(ACKNUM_OFFSET, ack);
+        data.putInt(CHECKSUM_OFFSET, check);
+        data.putInt(LENGTH_OFFSET, length);
+        if (length > 0)
+        {
+            data.position(HEADER_SIZE);
+            data.put(newPayload, offset, length);
+            data.position(0);
+        }
+    }
+
+    public BinaryPacket(int seq, int ack, int check, String newPayload)
+    {
+        this(seq, ack, check,
+             (newPayload == null) ? null : newPayload.getBytes(CHARSET));
+        payload = (newPayload == null) ? "" : newPayload;
+    }
+
+    public BinaryPacket(int seq, int ack, int check)
+    {
+        this(seq, ack, check, (byte[])null);
+        payload = "";
+    }
+
+    private BinaryPacket(ByteBuffer buffer)
+    {
+        super(buffer.getInt(SEQNUM_OFFSET), buffer.getInt(ACKNUM_OFFSET),
+              buffer.getInt(CHECKSUM_OFFSET));
+        data = buffer;
+    }
+
+    /*
+     * Reads a packet from "buffer", between its position and limit, as
+     * written by writeTo().  The bytes are copied.  Returns null if they
+     * do not hold a whole packet.
+     */
+    public static BinaryPacket read(ByteBuffer buffer)
+    {
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_SIZE)
+        {
+            return null;
+        }
+
+        int length = buffer.getInt(start + LENGTH_OFFSET);
+        if (length < 0 || buffer.remaining() < HEADER_SIZE + length)
+        {
+            return null;
+        }
+
+        ByteBuffer copy = ByteBuffer.allocate(HEADER_SIZE + length);
+        ByteBuffer source = buffer.duplicate();
+        source.limit(start + HEADER_SIZE + length);
+        copy.put(source);
+        copy.position(0);
+        buffer.position(start + HEADER_SIZE + length);
+        return new BinaryPacket(copy);
+    }
+
+    public boolean setSeqnum(int n)
+    {
+        return false;
+    }
+
+    public boolean setAcknum(int n)
+    {
+        return false;
+    }
+
+    public boolean setChecksum(int n)
+    {
+        return false;
+    }
+
+    public boolean setPayload(String newPayload)
+    {
+        return false;
+    }
+
+    public int getSeqnum()
+    {
+        return data.getInt(SEQNUM_OFFSET);
+    }
+
+    public int getAcknum()
+    {
+        return data.getInt(ACKNUM_OFFSET);
+    }
+
+    public int getChecksum()
+    {
+        return data.getInt(CHECKSUM_OFFSET);
+    }
+
+    public String getPayload()
+    {
+        if (payload == null)
+        {
+            payload = new String(data.array(), HEADER_SIZE,
+                                 getPayloadLength(), CHARSET);
+        }
+        return payload;
+    }
+
+    public int getPayloadLength()
+    {
+        return data.getInt(LENGTH_OFFSET);
+    }
+
+    public byte getPayloadByte(int index)
+    {
+        return data.get(HEADER_SIZE + index);
+    }
+
+    // The size of this packet on the wire
+    public int getSize()
+    {
+        return HEADER_SIZE + getPayloadLength();
+    }
+
+    // Appends the header and payload to "buffer"
+    public void writeTo(ByteBuffer buffer)
+    {
+        buffer.put(data.array(), 0, getSize());
+    }
+
+    public Packet corruptPayload()
+    {
+        int length = getPayloadLength();
+        byte[] corrupt;
+
+        if (length > 0)
+            corrupt = new byte[] { (byte)'?', getPayloadByte(length - 1) };
+        else
+            corrupt = new byte[] { (byte)'?' };
+
+        return new BinaryPacket(getSeqnum(), getAcknum(), getChecksum(),
+                                corrupt);
+    }
+
+    public Packet corruptSeqnum(int n)
+    {
+        return copyWithInt(SEQNUM_OFFSET, n);
+    }
+
+    public Packet corruptAcknum(int n)
+    {
+        return copyWithInt(ACKNUM_OFFSET, n);
+    }
+
+    private BinaryPacket copyWithInt(int offset, int n)
+    {
+        ByteBuffer copy = ByteBuffer.allocate(getSize());
+        copy.put(data.array(), 0, getSize());
+        copy.putInt(offset, n);
+        copy.position(0);
+        return new BinaryPacket(copy);
+    }
+}
@@ -0,0 +1,43 @@
+package edu.cs4480.protocol.framework;
+
+/**
+ * The packet checksum shared by the protocol implementations. A packet carries the inverted
+ * sum, so adding the carried checksum to a freshly computed sum gives -1 for an intact packet.
+ */
+final class Checksums {
+	private Checksums() {
+	}
+
+	/**
+	 * Creates a checksum from the given parameters. NOTE: The returned sum is not inverted.
+	 * @param seq The sequence number
+	 * @param ack The acknowledge number
+	 * @param data The payload
+	 * @return A calculated checksum. NOTE: The checksum is not inverted.
+	 */
+	static int sum(int seq, int ack, String data) {
+		int sum = 0;
+		for (int i = 0; i < data.length(); i++) {
+			sum += Character.getNumericValue(data.charAt(i));
+		}
+		sum += seq;
+		sum += ack;
+		return sum;
+	}
+
+	/**
+	 * Checks the packet for corruption.
+	 * @param pkt The packet to check
+	 * @return True if the carried checksum does not match the packet
+	 */
+	static boolean isCorrupted(Packet pkt) {
+		return pkt.getChecksum() + sum(pkt.getSeqnum(), pkt.getAcknum(), pkt.getPayload()) != -1;
+	}
+
+	/**
+	 * Creates an intact packet, checksum included.
+	 */
+	static Packet packet(int seq, int ack, String data) {
+		return new BinaryPacket(seq, ack, ~sum(seq, ack, data), data);
+	}
+}
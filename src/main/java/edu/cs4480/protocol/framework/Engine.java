@@ -0,0 +1,29 @@
+package edu.cs4480.protocol.framework;
+
+import java.util.Locale;
+
+/**
+ * How a simulator executes its events.
+ */
+public enum Engine {
+	/** One loop over a single event list */
+	SEQUENTIAL,
+	/**
+	 * The endpoints spread over logical processes on their own threads, advancing together in
+	 * time windows no longer than the smallest delay a packet can have, with the network run
+	 * between windows. Gives the same results as SEQUENTIAL with two processes, and is only
+	 * faster with a core for each and many events per window.
+	 */
+	PARALLEL,
+	/**
+	 * Not a simulation: the protocols run in real time, with wall-clock timers, and their packets
+	 * cross the loopback interface as UDP datagrams. The loss, corruption and delays of the
+	 * channel or link are applied before a packet is sent, so the results can be checked against
+	 * the simulated ones, but they are no longer reproducible.
+	 */
+	UDP;
+
+	public static Engine parse(String name) {
+		return valueOf(name.trim().toUpperCase(Locale.ROOT));
+	}
+}
@@ -6,6 +6,11 @@ public class Event
     private int type;
     private int entity;
     private Packet packet;
+    private boolean cancelled;
+    private Packet buffer;
+    // The router a packet crossing a topology is arriving at, or -1 once
+    // it arrives at "entity"
+    private int node = -1;
     
     public Event(double t, int ty, int ent)
     {
@@ -20,7 +25,14 @@ public class Event
         time = t;
         type = ty;
         entity = ent;
-        packet = new Packet(p);
+        if (p instanceof BinaryPacket)
+        {
+            packet = p;
+        }
+        else
+        {
+            packet = new Packet(p);
+        }
     }
             
     public boolean setTime(double t)
@@ -62,6 +74,10 @@ public class Event
         {
             packet = null;
         }        
+        else if (p instanceof BinaryPacket)
+        {
+            packet = p;
+        }
         else
         {
             packet = new Packet(p.getSeqnum(), p.getAcknum(),
@@ -91,6 +107,60 @@ public class Event
         return packet;
     }
     
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+    
+    // Reinitializes a recycled event.  Its packet buffer is kept for the
+    // next loadPacket() call.
+    void reset(double t, int ty, int ent)
+    {
+        time = t;
+        type = ty;
+        entity = ent;
+        packet = null;
+        cancelled = false;
+        node = -1;
+    }
+    
+    // Copies "p" into this event's own packet, reusing it when possible
+    void loadPacket(Packet p)
+    {
+        if (buffer == null)
+        {
+            buffer = new Packet(p);
+        }
+        else
+        {
+            buffer.copyFrom(p);
+        }
+        packet = buffer;
+    }
+    
+    // Carries "p" without copying it.  Only for packets nobody can modify.
+    void sharePacket(Packet p)
+    {
+        packet = p;
+    }
+    
+    int getNode()
+    {
+        return node;
+    }
+    
+    void setNode(int n)
+    {
+        node = n;
+    }
+    
+    // Marks the event as dead so the event list can drop it lazily instead
+    // of searching for it
+    void cancel()
+    {
+        cancelled = true;
+    }
+    
     public String toString()
     {
         return("time: " + time + "  type: " + type + "  entity: " + entity +
@@ -6,5 +6,6 @@ public interface EventList
     public Event removeNext();
     public String toString();
     public Event removeTimer(int entity);
+    public Event getTimer(int entity);
     public double getLastPacketTime(int entityTo);
 }
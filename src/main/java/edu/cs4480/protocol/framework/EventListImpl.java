@@ -72,6 +72,21 @@ public class EventListImpl implements EventList
             
     }
     
+    public Event getTimer(int entity)
+    {
+        for (int i = 0; i < data.size(); i++)
+        {
+            if ((((Event)(data.elementAt(i))).getType() == 
+                                           NetworkSimulator.TIMER_INTERRUPT) &&
+                (((Event)(data.elementAt(i))).getEntity() == entity))
+            {
+                return (Event)(data.elementAt(i));
+            }
+        }
+        
+        return null;
+    }
+    
     public double getLastPacketTime(int entityTo)
     {
         double time = 0.0;
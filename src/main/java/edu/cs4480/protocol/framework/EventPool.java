@@ -0,0 +1,73 @@
+package edu.cs4480.protocol.framework;
+
+/*
+ * A free list of Event objects.  When event recycling is turned on, the
+ * simulator takes every event it schedules from here and hands it back
+ * once the event has been dispatched, so a running simulation stops
+ * allocating events and packet copies once the pool has warmed up.
+ */
+public class EventPool
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Event[] free;
+    private int count;
+    private long created;
+
+    public EventPool()
+    {
+        free = new Event[INITIAL_CAPACITY];
+        count = 0;
+        created = 0;
+    }
+
+    public Event obtain(double t, int ty, int ent)
+    {
+        if (count == 0)
+        {
+            created++;
+            return new Event(t, ty, ent);
+        }
+
+        Event e = free[--count];
+        free[count] = null;
+        e.reset(t, ty, ent);
+        return e;
+    }
+
+    public Event obtain(double t, int ty, int ent, Packet p)
+    {
+        Event e = obtain(t, ty, ent);
+        if (p instanceof BinaryPacket)
+        {
+            e.sharePacket(p);
+        }
+        else
+        {
+            e.loadPacket(p);
+        }
+        return e;
+    }
+
+    public void release(Event e)
+    {
+        if (count == free.length)
+        {
+            Event[] newFree = new Event[free.length << 1];
+            System.arraycopy(free, 0, newFree, 0, count);
+            free = newFree;
+        }
+        free[count++] = e;
+    }
+
+    // The number of events this pool has ever had to allocate
+    public long getCreated()
+    {
+        return created;
+    }
+
+    public int getFree()
+    {
+        return count;
+    }
+}
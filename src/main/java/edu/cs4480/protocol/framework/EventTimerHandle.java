@@ -0,0 +1,69 @@
+package edu.cs4480.protocol.framework;
+
+/*
+ * The handle for an entity's single TIMER_INTERRUPT event, as returned by
+ * NetworkSimulator.startTimer(int, double).
+ *
+ * With event recycling turned on, the simulator keeps one handle per entity
+ * and rebinds it on every startTimer(), so a handle always refers to the
+ * entity's most recent timer.
+ */
+class EventTimerHandle extends TimerHandle
+{
+    private EventList eventList;
+    private Event timer;
+    private CancelListener listener;
+
+    // "l" is told when cancel() stops the timer, and may be null
+    EventTimerHandle(EventList list, Event t, CancelListener l)
+    {
+        eventList = list;
+        timer = t;
+        listener = l;
+    }
+
+    void bind(Event t)
+    {
+        timer = t;
+    }
+
+    boolean belongsTo(EventList list)
+    {
+        return eventList == list;
+    }
+
+    public boolean cancel()
+    {
+        if (!isActive())
+        {
+            return false;
+        }
+
+        eventList.removeTimer(timer.getEntity());
+        if (listener != null)
+        {
+            listener.timerCancelled(this);
+        }
+        return true;
+    }
+
+    public boolean isActive()
+    {
+        return eventList.getTimer(timer.getEntity()) == timer;
+    }
+
+    public int getEntity()
+    {
+        return timer.getEntity();
+    }
+
+    public int getTimerId()
+    {
+        return NO_TIMER_ID;
+    }
+
+    public double getExpiryTime()
+    {
+        return timer.getTime();
+    }
+}
@@ -0,0 +1,358 @@
+package edu.cs4480.protocol.framework;
+
+/*
+ * An EventList backed by a binary min-heap keyed on event time.  add() and
+ * removeNext() are O(log n).  Events scheduled for the same time are
+ * removed in the order they were added, which matches EventListImpl.
+ *
+ * Timers are indexed by entity, so removeTimer() and getTimer() are O(1),
+ * in arrays that grow with the number of entities, e.g. flow endpoints.
+ * A removed timer is only marked cancelled and is dropped when it reaches
+ * the top of the heap, or when cancelled events make up half of the heap.
+ *
+ * The arrival time of the newest packet still in flight to each entity is
+ * also kept as packets are added and removed, so getLastPacketTime() is
+ * O(1).  The channel never reorders, so that packet is always the last one
+ * to be removed for its entity.
+ *
+ * If an EventPool is supplied, cancelled events are handed back to it when
+ * they are dropped.
+ */
+public class HeapEventList implements EventList
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Event[] heap;
+    private long[] order;
+    private int size;
+    private long nextOrder;
+    private int cancelled;
+    private Event[] timers;
+    private double[] lastPacketTimes;
+    private int[] pendingPackets;
+    private EventPool pool;
+
+    public HeapEventList()
+    {
+        this(null);
+    }
+
+    public HeapEventList(EventPool eventPool)
+    {
+        heap = new Event[INITIAL_CAPACITY];
+        order = new long[INITIAL_CAPACITY];
+        size = 0;
+        nextOrder = 0;
+        cancelled = 0;
+        timers = new Event[2];
+        lastPacketTimes = new double[2];
+        pendingPackets = new int[2];
+        pool = eventPool;
+    }
+
+    public boolean add(Event e)
+    {
+        if (size == heap.length)
+        {
+            grow();
+        }
+
+        heap[size] = e;
+        order[size] = nextOrder++;
+        siftUp(size);
+        size++;
+
+        int entity = e.getEntity();
+        if (entity < 0)
+        {
+            return true;
+        }
+        if (entity >= timers.length)
+        {
+            growEntities(Math.max(entity + 1, timers.length << 1));
+        }
+
+        // Only one timer per entity is indexed, which is all that
+        // NetworkSimulator will schedule
+        if (e.getType() == NetworkSimulator.TIMER_INTERRUPT)
+        {
+            if (timers[entity] == null)
+            {
+                timers[entity] = e;
+            }
+        }
+        else if (e.getType() == NetworkSimulator.FROM_LAYER_3)
+        {
+            lastPacketTimes[entity] = e.getTime();
+            pendingPackets[entity]++;
+        }
+        return true;
+    }
+
+    public Event removeNext()
+    {
+        while (size > 0)
+        {
+            Event next = removeAt(0);
+            if (next.isCancelled())
+            {
+                cancelled--;
+                discard(next);
+                continue;
+            }
+
+            if (next.getType() == NetworkSimulator.TIMER_INTERRUPT)
+            {
+                clearTimer(next);
+            }
+            else if (next.getType() == NetworkSimulator.FROM_LAYER_3)
+            {
+                packetRemoved(next);
+            }
+            return next;
+        }
+
+        return null;
+    }
+
+    // The time of the event removeNext() would return next, or
+    // Double.POSITIVE_INFINITY if there is none
+    public double nextTime()
+    {
+        while (size > 0 && heap[0].isCancelled())
+        {
+            Event next = removeAt(0);
+            cancelled--;
+            discard(next);
+        }
+        return (size > 0) ? heap[0].getTime() : Double.POSITIVE_INFINITY;
+    }
+
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("[");
+        boolean first = true;
+        for (int i = 0; i < size; i++)
+        {
+            if (heap[i].isCancelled())
+            {
+                continue;
+            }
+            if (!first)
+            {
+                sb.append(", ");
+            }
+            sb.append(heap[i]);
+            first = false;
+        }
+        return sb.append("]").toString();
+    }
+
+    public Event removeTimer(int entity)
+    {
+        Event timer = getTimer(entity);
+        if (timer == null)
+        {
+            return null;
+        }
+
+        timers[entity] = null;
+        timer.cancel();
+        cancelled++;
+
+        if (cancelled > (size >>> 1))
+        {
+            purge();
+        }
+        return timer;
+    }
+
+    public Event getTimer(int entity)
+    {
+        if (entity < 0 || entity >= timers.length)
+        {
+            return null;
+        }
+        return timers[entity];
+    }
+
+    public double getLastPacketTime(int entityTo)
+    {
+        if (entityTo < 0 || entityTo >= lastPacketTimes.length)
+        {
+            return 0.0;
+        }
+        return lastPacketTimes[entityTo];
+    }
+
+    public int size()
+    {
+        return size - cancelled;
+    }
+
+    private void clearTimer(Event timer)
+    {
+        int entity = timer.getEntity();
+        if (entity >= 0 && entity < timers.length && timers[entity] == timer)
+        {
+            timers[entity] = null;
+        }
+    }
+
+    private void packetRemoved(Event packet)
+    {
+        int entity = packet.getEntity();
+        if (entity >= 0 && entity < pendingPackets.length &&
+            --pendingPackets[entity] == 0)
+        {
+            lastPacketTimes[entity] = 0.0;
+        }
+    }
+
+    private void discard(Event e)
+    {
+        if (pool != null)
+        {
+            pool.release(e);
+        }
+    }
+
+    private void growEntities(int count)
+    {
+        Event[] newTimers = new Event[count];
+        double[] newTimes = new double[count];
+        int[] newPending = new int[count];
+
+        System.arraycopy(timers, 0, newTimers, 0, timers.length);
+        System.arraycopy(lastPacketTimes, 0, newTimes, 0,
+                         lastPacketTimes.length);
+        System.arraycopy(pendingPackets, 0, newPending, 0,
+                         pendingPackets.length);
+        timers = newTimers;
+        lastPacketTimes = newTimes;
+        pendingPackets = newPending;
+    }
+
+    // Drops every cancelled event and rebuilds the heap in place
+    private void purge()
+    {
+        int live = 0;
+        for (int i = 0; i < size; i++)
+        {
+            if (!heap[i].isCancelled())
+            {
+                heap[live] = heap[i];
+                order[live] = order[i];
+                live++;
+            }
+            else
+            {
+                discard(heap[i]);
+            }
+        }
+        for (int i = live; i < size; i++)
+        {
+            heap[i] = null;
+        }
+
+        size = live;
+        cancelled = 0;
+        for (int i = (size >>> 1) - 1; i >= 0; i--)
+        {
+            siftDown(i);
+        }
+    }
+
+    private Event removeAt(int index)
+    {
+        Event removed = heap[index];
+
+        size--;
+        if (index != size)
+        {
+            heap[index] = heap[size];
+            order[index] = order[size];
+            heap[size] = null;
+
+            siftDown(index);
+            siftUp(index);
+        }
+        else
+        {
+            heap[size] = null;
+        }
+
+        return removed;
+    }
+
+    private boolean before(int i, int j)
+    {
+        double ti = heap[i].getTime();
+        double tj = heap[j].getTime();
+
+        if (ti != tj)
+        {
+            return ti < tj;
+        }
+        return order[i] < order[j];
+    }
+
+    private void siftUp(int index)
+    {
+        while (index > 0)
+        {
+            int parent = (index - 1) >>> 1;
+            if (!before(index, parent))
+            {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index)
+    {
+        while (true)
+        {
+            int child = (index << 1) + 1;
+            if (child >= size)
+            {
+                break;
+            }
+            if ((child + 1 < size) && before(child + 1, child))
+            {
+                child++;
+            }
+            if (!before(child, index))
+            {
+                break;
+            }
+            swap(index, child);
+            index = child;
+        }
+    }
+
+    private void swap(int i, int j)
+    {
+        Event e = heap[i];
+        heap[i] = heap[j];
+        heap[j] = e;
+
+        long o = order[i];
+        order[i] = order[j];
+        order[j] = o;
+    }
+
+    private void grow()
+    {
+        int capacity = heap.length << 1;
+        Event[] newHeap = new Event[capacity];
+        long[] newOrder = new long[capacity];
+
+        System.arraycopy(heap, 0, newHeap, 0, size);
+        System.arraycopy(order, 0, newOrder, 0, size);
+        heap = newHeap;
+        order = newOrder;
+    }
+}
@@ -0,0 +1,62 @@
+package edu.cs4480.protocol.framework;
+
+import edu.cs4480.protocol.stats.NetStats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * The execution state of the endpoints that run together: their pending
+ * events, their clock, their numbered timers and their stats.  A
+ * sequential run keeps every endpoint in one logical process.  A parallel
+ * run spreads them over several, each driven by its own thread, and a
+ * process only ever touches its own state.  The packets it sends are
+ * collected in its outbox, and put through the network between time
+ * windows.
+ */
+class LogicalProcess
+{
+    final HeapEventList eventList;
+    final EventPool eventPool;
+    final List<Event> outbox;
+    // What the endpoints in the process record, indexed by A or B
+    final NetStats[] stats;
+    double time;
+    long events;
+    TimingWheel timingWheel;
+    double wheelWakeTime;
+    int nToLayer3;
+    int nLost;
+    int nCorrupt;
+    // The flows whose A is in the process and has not yet been handed
+    // its last message, and the time the last of them was
+    int flowsRunning;
+    double doneTime;
+    // The latest arrival scheduled here of a message that will still be
+    // handed to A, so a time the run is bound to reach
+    double endBound;
+
+    LogicalProcess(boolean recycle)
+    {
+        eventPool = recycle ? new EventPool() : null;
+        eventList = new HeapEventList(eventPool);
+        outbox = new ArrayList<Event>();
+        stats = new NetStats[] { new NetStats(), new NetStats() };
+        time = 0.0;
+        events = 0;
+        timingWheel = null;
+        wheelWakeTime = Double.POSITIVE_INFINITY;
+        flowsRunning = 0;
+        doneTime = Double.NEGATIVE_INFINITY;
+        endBound = Double.NEGATIVE_INFINITY;
+    }
+
+    // Hands an event that has been dispatched back for reuse
+    void release(Event e)
+    {
+        if (eventPool != null)
+        {
+            eventPool.release(e);
+        }
+    }
+}
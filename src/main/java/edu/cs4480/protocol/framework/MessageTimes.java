@@ -0,0 +1,93 @@
+package edu.cs4480.protocol.framework;
+
+/*
+ * The times layer 5 handed a flow's messages to A, for those B has not
+ * yet delivered and A has not dropped.  B delivers messages in the order
+ * A first sent them, which is the order they were handed over once the
+ * dropped ones are left out, so the oldest time is always that of the
+ * next message B delivers.
+ *
+ * A adds and drops times and B takes them, and in a parallel run they may
+ * do so on different threads at once.  A message B delivers was handed to
+ * A in an earlier time window, and A only ever drops messages it has not
+ * sent, so B only reads times A no longer writes.  A grows the ring into
+ * a new array rather than write over a time B may still read, and
+ * publishes it through a volatile field.
+ */
+class MessageTimes
+{
+    private static final int INITIAL_CAPACITY = 16;
+
+    private volatile double[] ring;
+    // The number of times ever added, and ever taken, so the live ones
+    // are those from taken up to added
+    private int added;
+    private int taken;
+
+    MessageTimes()
+    {
+        ring = new double[INITIAL_CAPACITY];
+        added = 0;
+        taken = 0;
+    }
+
+    // Called by A when layer 5 hands it a message at "time"
+    void add(double time)
+    {
+        double[] times = ring;
+        // B may be taking times, so "taken" may be behind; then the ring
+        // only grows sooner than it has to
+        int first = taken;
+        if (added - first >= times.length)
+        {
+            double[] grown = new double[times.length << 1];
+            for (int i = first; i < added; i++)
+            {
+                grown[i % grown.length] = times[i % times.length];
+            }
+            ring = grown;
+            times = grown;
+        }
+        times[added % times.length] = time;
+        added++;
+    }
+
+    // Called by A when it drops a message layer 5 handed it at "time".
+    // Messages handed over at the same time have the same time, so it
+    // does not matter which of them the time is taken from.
+    void drop(double time)
+    {
+        double[] times = ring;
+        int first = taken;
+        for (int i = added - 1; i >= first; i--)
+        {
+            if (times[i % times.length] == time)
+            {
+                for (int j = i + 1; j < added; j++)
+                {
+                    times[(j - 1) % times.length] =
+                        times[j % times.length];
+                }
+                added--;
+                return;
+            }
+        }
+        throw new IllegalArgumentException("no message was handed to A " +
+                                           "at " + time);
+    }
+
+    // Called by B when it delivers the next message; returns the time it
+    // was handed to A
+    double take()
+    {
+        double[] times = ring;
+        if (taken == added)
+        {
+            throw new IllegalStateException("B delivered more messages " +
+                                            "than A was handed");
+        }
+        double time = times[taken % times.length];
+        taken++;
+        return time;
+    }
+}
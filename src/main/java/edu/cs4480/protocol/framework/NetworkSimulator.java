@@ -1,6 +1,37 @@
 package edu.cs4480.protocol.framework;
 
+import edu.cs4480.protocol.link.BernoulliLoss;
+import edu.cs4480.protocol.link.CorruptionModel;
+import edu.cs4480.protocol.link.FieldCorruption;
+import edu.cs4480.protocol.link.Link;
+import edu.cs4480.protocol.link.LinkConfig;
+import edu.cs4480.protocol.link.LossModel;
+import edu.cs4480.protocol.link.Topology;
+import edu.cs4480.protocol.stats.FlowStats;
+import edu.cs4480.protocol.stats.LinkStats;
+import edu.cs4480.protocol.stats.NetStats;
+import edu.cs4480.protocol.stats.SocketStats;
+import edu.cs4480.protocol.trace.Trace;
+import edu.cs4480.protocol.trace.TraceReader;
+import edu.cs4480.protocol.trace.TraceTool;
+import edu.cs4480.protocol.trace.TraceWriter;
+import edu.cs4480.protocol.traffic.ArrivalProcess;
+import edu.cs4480.protocol.traffic.MessageSize;
+import edu.cs4480.protocol.traffic.UniformArrivals;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
 
 public abstract class NetworkSimulator
 {
@@ -16,22 +47,158 @@ public abstract class NetworkSimulator
     // These constants represent our sender and receiver 
     public static final int A = 0;
     public static final int B = 1;
+    
+    // Every flow has an A and a B endpoint.  Events and timers are
+    // addressed to endpoints: flow f's A is endpoint 2f and its B endpoint
+    // 2f + 1, so a simulator on its own is flow 0 and its endpoints are
+    // just A and B.
+    private static final int ENDPOINTS_PER_FLOW = 2;
+    
+    // The default tick size of the timing wheel behind numbered timers
+    public static final double DEFAULT_TIMER_RESOLUTION = 0.01;
+    
+    // The entity of the TIMER_INTERRUPT events that drive the timing wheel
+    private static final int WHEEL = -1;
+    
+    // How long a time unit lasts on the UDP engine by default, in seconds
+    public static final double DEFAULT_REAL_TIME_UNIT = 0.0001;
+    
+    // The order the network takes the packets sent in a time window in.
+    // The sort is stable, and the outboxes are gathered in process order,
+    // so packets sent at the same time go by side and flow as processAt()
+    // lays the endpoints out, and those one process sends at the same
+    // time keep the order it sent them in.
+    private static final Comparator<Event> SEND_ORDER =
+        new Comparator<Event>()
+        {
+            public int compare(Event a, Event b)
+            {
+                return Double.compare(a.getTime(), b.getTime());
+            }
+        };
+    
+    // How long the UDP engine waits for packets still in flight once
+    // nothing else is left to happen, in seconds
+    private static final double IDLE_TIMEOUT = 1.0;
 
     private int maxMessages;
     private double lossProb;
     private double corruptProb;
     private double avgMessageDelay;
+    // Above 0, the run is recorded and its trace printed as text when it
+    // ends
     private int traceLevel;
-    private EventList eventList;
+    private TraceWriter traceWriter;
+    // Records the timers the protocol cancels through their handles
+    private final TimerHandle.CancelListener cancelTracer =
+        new TimerHandle.CancelListener()
+        {
+            public void timerCancelled(TimerHandle timer)
+            {
+                traceWriter.write(getTime(), Trace.Kind.TIMER_STOP,
+                                  Trace.Outcome.OK, timer.getEntity(), -1,
+                                  -1, 0, timer.getTimerId());
+            }
+        };
+    private boolean recycleEvents;
+    // Each endpoint's timer handle, indexed by its address
+    private EventTimerHandle[] timerHandles;
+    private Message[] messages;
+    private double timerResolution;
+    private Engine engine;
+    private int parallelism;
+    private double realTimeUnit;
+    // The sockets of a run on the UDP engine, and what they did in the
+    // last one
+    private UdpChannel channel;
+    private SocketStats socketStats;
+    private double elapsed;
+    private boolean layer5Blocked;
+    private boolean layer5Pending;
+    private LinkConfig linkConfig;
+    private Link[] links;
+    // With a topology, its links and routes, and for each link, its stats
+    // and the arrival time of the last packet it carried
+    private Topology topology;
+    private int[][] routes;
+    private Link[] topologyLinks;
+    private LinkStats[] linkStats;
+    private double[] linkArrivalTimes;
+    private LossModel lossModel;
+    private CorruptionModel corruptionModel;
+    private LossModel[] lossModels;
+    private CorruptionModel[] corruptionModels;
+    private ArrivalProcess arrivalProcess;
+    private ArrivalProcess arrivals;
+    private MessageSize messageSize;
+    private int messageLimit;
+    // When layer 5 handed A each message B is still to deliver, for the
+    // latency of the messages
+    private MessageTimes messageTimes;
+
+    // Every stochastic source draws from its own stream, so a protocol
+    // that sends one more packet doesn't change the arrivals, or the
+    // losses and corruptions other packets see.  The per-direction
+    // streams are indexed by the destination of the packets.
+    private Random arrivalRand;
+    private Random[] lossRand;
+    private Random[] corruptRand;
+    private Random[] delayRand;
+    private Random sizeRand;
+    private NetStats stats;
+    private FlowStats flowStats;
+    // The arrival time of the last packet sent to each endpoint, indexed
+    // by its address, so that the channel can keep packets in order.
+    // Shared by every flow of the run, like the timer handles.
+    private double[] lastArrivalTimes;
 
-    private Random rand;
+    // The logical process each of this flow's entities runs in, and every
+    // process of the run.  A sequential run has just one.
+    private LogicalProcess[] processes;
+    private LogicalProcess[] logicalProcesses;
+    // Where the channel, links and routers run: in a sequential run, the
+    // one process, and in a parallel one, a process of its own that runs
+    // between time windows
+    private LogicalProcess networkProcess;
+    // Set by a parallel run, for getTime() to find the calling thread's
+    // process
+    private ThreadLocal<LogicalProcess> threadProcess;
+    // The parallel run's current time window ends here, and the run does
+    // not end before windowBound.  Written between phases of a window
+    // only.
+    private double windowEnd;
+    private double windowBound;
+    private boolean finished;
+    private volatile Throwable failure;
 
+    // The flows added with addFlow(), and while running, every flow on
+    // this simulator's network, indexed by flow number with this one
+    // first.  null if this simulator runs on its own.
+    private List<NetworkSimulator> addedFlows;
+    private NetworkSimulator[] flows;
+    // The simulator whose network this flow runs on, its number there and
+    // the address of its A endpoint.  A simulator on its own is its own
+    // host.
+    private NetworkSimulator host;
+    private int flowIndex;
+    private int firstEndpoint;
+    
     private int nSim;
-    private int nToLayer3;
-    private int nLost;
-    private int nCorrupt;
-    private double time;
+    private long nEvents;
+    
     
+    // The contents of every message layer 5 can generate
+    private static final String[] MESSAGE_DATA = new String[26];
+    
+    static
+    {
+        char[] data = new char[MAX_DATA_SIZE];
+        for (int i = 0; i < MESSAGE_DATA.length; i++)
+        {
+            Arrays.fill(data, (char)(i + 97));
+            MESSAGE_DATA[i] = new String(data);
+        }
+    }
     
     protected abstract void aOutput(Message message);
     protected abstract void aInput(Packet packet);
@@ -53,296 +220,1739 @@ public abstract class NetworkSimulator
         corruptProb = corrupt;
         avgMessageDelay = avgDelay;
         traceLevel = trace;
-        eventList = new EventListImpl();
         
-        rand = new Random(seed);
+        // The streams are split off in a fixed order, so the same seed
+        // always gives every source the same stream
+        SplittableRandom streams = new SplittableRandom(seed);
+        arrivalRand = new Random(streams.split().nextLong());
+        lossRand = new Random[2];
+        corruptRand = new Random[2];
+        delayRand = new Random[2];
+        for (int entity = A; entity <= B; entity++)
+        {
+            lossRand[entity] = new Random(streams.split().nextLong());
+            corruptRand[entity] = new Random(streams.split().nextLong());
+            delayRand[entity] = new Random(streams.split().nextLong());
+        }
+        // Split last, so runs with fixed-size messages see the same
+        // streams as before it existed
+        sizeRand = new Random(streams.split().nextLong());
         
+        host = this;
+        flowIndex = 0;
+        firstEndpoint = 0;
         nSim = 0;
-        nToLayer3 = 0;
-        nLost = 0;
-        nCorrupt = 0;
-        time = 0.0;
+        nEvents = 0;
+        
+        timerResolution = DEFAULT_TIMER_RESOLUTION;
+        engine = Engine.SEQUENTIAL;
+        parallelism = 0;
+        realTimeUnit = DEFAULT_REAL_TIME_UNIT;
+        // Only the host of a run makes the logical processes, so a flow
+        // has none until it runs
+        processes = null;
+        logicalProcesses = null;
+        networkProcess = null;
     }
     
-    public void runSimulator()
+    // Recycles events, packet copies, timer handles and layer 5 messages
+    // instead of allocating them.  Packets passed to aInput() and bInput()
+    // are then only valid until the call returns, messages passed to
+    // aOutput() are shared and must not be modified, and startTimer()
+    // returns the same handle for an entity every time.  Must be called
+    // before runSimulator().
+    public void setEventRecycling(boolean recycle)
     {
-        Event next;
-        
-        // Perform any student-required initialization
-        aInit();
-        bInit();
-        
-        // Start the whole thing off by scheduling some data arrival
-        // from layer 5
-        generateNextArrival();
-        
-        // Begin the main loop
-        while (true)
+        recycleEvents = recycle;
+    }
+    
+    // Picks how runSimulator() executes events.  PARALLEL spreads the
+    // endpoints of every flow over logical processes, see
+    // setParallelism(), each on its own thread with its own event list,
+    // clock and stats.  They advance in time windows no longer than the
+    // smallest delay a packet can have between two endpoints, so nothing
+    // one of them does in a window can affect another before the next.
+    // The channel, links and routers, and their random streams, are
+    // shared by every flow, so the network runs as a process of its own
+    // between windows: at the barrier that ends one, the packets sent in
+    // it are put through the network in time order and handed to the
+    // processes they are for.  A process whose flows have all been handed
+    // their last message waits at the barrier rather than run past the
+    // time the run may end at, and once the others have shown how far
+    // it may go, the window gets a second phase for it to catch up.
+    //
+    // With two processes, every A runs in one and every B in the other,
+    // and the results are the same as SEQUENTIAL's.  With more, they are
+    // too, as long as the events of endpoints in different processes
+    // never fall on exactly the same time: the sequential engine orders
+    // such events by when they were scheduled, which the parallel one
+    // cannot know across threads, and takes them by side and flow
+    // instead.  Random gaps and delays make that all but impossible, but
+    // bulk arrivals hand every flow its messages at the same times.  The
+    // stats are kept per process too and merged when the run ends, so
+    // means can differ in their last digits, the RTO and congestion
+    // window series can differ in their change counts, and each process
+    // counts the events of its own timing wheel.
+    // The run falls back to SEQUENTIAL when packets can arrive without
+    // any delay, or when tracing, whose output would otherwise
+    // interleave.
+    //
+    // UDP runs the protocols in real time instead, on one thread: timers
+    // expire and messages arrive on the wall clock, see
+    // setRealTimeUnit(), and packets are sent as datagrams between two
+    // sockets on the loopback interface.  Loss, corruption and the delays
+    // of the channel or link are applied to a packet before it is sent,
+    // and getSocketStats() has what the sockets did.  A topology cannot
+    // be run this way.  Must be called before runSimulator().
+    public void setEngine(Engine newEngine)
+    {
+        engine = newEngine;
+    }
+    
+    // Sets how many logical processes, each on a thread of its own, the
+    // PARALLEL engine spreads the endpoints over: the As of the flows share
+    // half of them, in blocks of consecutive flows, and the Bs the other
+    // half.  0, the default, means one per available processor, but at
+    // least two.  A run never has more processes than endpoints.  Must be
+    // called before runSimulator().
+    public void setParallelism(int count)
+    {
+        if (count < 0)
         {
-            // Get our next event
-            next = eventList.removeNext();
-            if (next == null)
-            {
-                break;
-            }
-            
-            if (traceLevel >= 2)
-            {
-                System.out.println();
-                System.out.print("EVENT time: " + next.getTime());
-                System.out.print("  type: " + next.getType());
-                System.out.println("  entity: " + next.getEntity());
-            }
-            
-            // Advance the simulator's time
-            time = next.getTime();
-            
-            // If we've reached the maximum message count, exit the main loop
-            if (nSim >= maxMessages)
-            {
-                break;
-            }
-            
-            // Perform the appropriate action based on the event 
-            switch (next.getType())
-            {
-                case TIMER_INTERRUPT:
-                    if (next.getEntity() == A)
-                    {
-                        aTimerInterrupt();
-                    }
-                    else
-                    {
-                        System.out.println("INTERNAL PANIC: Timeout for " +
-                                           "invalid entity");
-                    }
-                    break;
-                    
-                case FROM_LAYER_3:
-                    if (next.getEntity() == A)
-                    {
-                        aInput(next.getPacket());
-                    }
-                    else if (next.getEntity() == B)
-                    {
-                        bInput(next.getPacket());
-                    }
-                    else
-                    {
-                        System.out.println("INTERNAL PANIC: Packet has " +
-                                           "arrived for unknown entity");
-                    }
-                    
-                    break;
-                    
-                case FROM_LAYER_5:
-                    
-                    // If a message has arrived from layer 5, we need to
-                    // schedule the arrival of the next message
-                    generateNextArrival();
-                    
-                    char[] nextMessage = new char[MAX_DATA_SIZE];
-                    
-                    // Now, let's generate the contents of this message
-                    char j = (char)((nSim % 26) + 97);
-                    for (int i = 0; i < MAX_DATA_SIZE; i++)
-                    {
-                        nextMessage[i] = j;
-                    }
-                    
-                    // Increment the message counter
-                    nSim++;
-                    
-                    // Let the student handle the new message
-                    aOutput(new Message(new String(nextMessage)));
-                    break;
-                    
-                default:
-                    System.out.println("INTERNAL PANIC: Unknown event type");
-            }    
+            throw new IllegalArgumentException("the number of processes " +
+                                               "must not be negative");
         }
-        
+        parallelism = count;
     }
     
-    /* Generate the next arrival and add it to the event list */
-    private void generateNextArrival()
+    // Sets how many seconds of wall-clock time a time unit lasts on the
+    // UDP engine, DEFAULT_REAL_TIME_UNIT unless set.  Every time the
+    // protocols and the stats see is in these units.  Must be called
+    // before runSimulator().
+    public void setRealTimeUnit(double seconds)
     {
-        if (traceLevel > 2)
+        if (seconds <= 0.0)
         {
-            System.out.println("generateNextArrival(): called");
+            throw new IllegalArgumentException("the time unit must be " +
+                                               "positive");
         }
-        
-        // arrival time 'x' is uniform on [0, 2*avgMessageDelay]
-        // having mean of avgMessageDelay.  Should this be made
-        // into a Gaussian distribution? 
-        double x = 2 * avgMessageDelay * rand.nextDouble();
-                
-        Event next = new Event(time + x, FROM_LAYER_5, A);
-                
-        eventList.add(next);
-        if (traceLevel > 2)
+        realTimeUnit = seconds;
+    }
+    
+    // Runs another sender/receiver pair alongside this one, e.g. to see
+    // how flows share a bottleneck link.  The flow keeps its own protocol,
+    // messages, arrivals and random streams for them, but uses this
+    // simulator's channel or links, loss and corruption models, tracing,
+    // engine and event recycling, and records into its stats.  Flows are
+    // numbered in the order they are added, from 1; this simulator's own
+    // is flow 0.  getFlowStats() has what each flow sent and delivered.
+    // Must be called before runSimulator().
+    public void addFlow(NetworkSimulator flow)
+    {
+        if (flow == this || flow.addedFlows != null)
         {
-            System.out.println("generateNextArrival(): time is " + time);
-            System.out.println("generateNextArrival(): future time for " +
-                               "event " + next.getType() + " at entity " +
-                               next.getEntity() + " will be " +
-                               next.getTime());
+            throw new IllegalArgumentException("a flow cannot be added " +
+                                               "to itself or have flows");
         }
-        
+        if (addedFlows == null)
+        {
+            addedFlows = new ArrayList<NetworkSimulator>();
+        }
+        addedFlows.add(flow);
     }
     
-    protected void stopTimer(int entity)
+    // Replaces the original channel, which delays each packet 1 to 10
+    // time units after the one before it, with a link of the given
+    // bandwidth, propagation delay, jitter and queue in each direction.
+    // null restores the original channel.  Must be called before
+    // runSimulator().
+    public void setLinkConfig(LinkConfig config)
+    {
+        linkConfig = (config == null) ? null : new LinkConfig(config);
+    }
+    
+    // Replaces the channel between A and B by a topology: nodes joined by
+    // links with their own rate, delay and queue.  Each packet is
+    // forwarded link by link along the topology's routes, as an event at
+    // every router it reaches, and each link keeps its own stats, see
+    // getLinkStats().  The loss and corruption models still apply once
+    // per packet, as it leaves its sender.  Takes the place of
+    // setLinkConfig().  On the parallel engine, the routers forward
+    // between time windows, so the windows are as long as the shortest
+    // link that leaves or reaches the node of an endpoint.  null restores
+    // the channel.  Must be called before runSimulator().
+    public void setTopology(Topology newTopology)
+    {
+        topology = (newTopology == null) ? null : new Topology(newTopology);
+    }
+    
+    // Replaces the independent losses with the loss probability given to
+    // the constructor by another loss model, e.g. a bursty one.  Each
+    // direction gets its own copy.  null restores the default.  Must be
+    // called before runSimulator().
+    public void setLossModel(LossModel model)
+    {
+        lossModel = model;
+    }
+    
+    // Replaces the original corruption, with the corruption probability
+    // given to the constructor, by another corruption model.  Each
+    // direction gets its own copy.  null restores the default.  Must be
+    // called before runSimulator().
+    public void setCorruptionModel(CorruptionModel model)
+    {
+        corruptionModel = model;
+    }
+    
+    // Replaces the original arrivals, uniform gaps with the mean given to
+    // the constructor, by another arrival process, e.g. a bursty or a
+    // backlogged one.  null restores the default.  Must be called before
+    // runSimulator().
+    public void setArrivalProcess(ArrivalProcess process)
     {
-        if (traceLevel > 2)
+        arrivalProcess = process;
+    }
+    
+    // Sets the range the sizes of the messages layer 5 generates are
+    // drawn from.  Sizes above MAX_DATA_SIZE are not allowed.  null
+    // restores the default, every message MAX_DATA_SIZE long.  Must be
+    // called before runSimulator().
+    public void setMessageSize(MessageSize size)
+    {
+        if (size != null && size.getMax() > MAX_DATA_SIZE)
         {
-            System.out.println("stopTimer: stopping timer at " + time);
+            throw new IllegalArgumentException("messages can be at most " +
+                                               MAX_DATA_SIZE + " long");
         }
-
-        Event timer = eventList.removeTimer(entity);
-
-        // Let the student know they are attempting to cancel a non-existant 
-        // timer
-        if (timer == null)
+        messageSize = size;
+    }
+    
+    // Sets the tick size of the timing wheel used by numbered timers.  Such
+    // timers fire on the first tick at or after their expiry time.  Must be
+    // called before runSimulator().
+    public void setTimerResolution(double resolution)
+    {
+        if (resolution <= 0.0)
         {
-            System.out.println("stopTimer: Warning: Unable to cancel your " +
-                               "timer");
-        }        
+            throw new IllegalArgumentException("timer resolution must be " +
+                                               "positive");
+        }
+        timerResolution = resolution;
+    }
+    
+    // Records everything that happens in the run, every message, packet
+    // and timer, as fixed-size records in a binary trace.  TraceTool
+    // decodes and summarizes it.  The caller closes the writer after the
+    // run, and the trace level prints nothing while one is set.  Like
+    // the trace level, it keeps the run on the sequential engine.  null
+    // stops recording.  Must be called before runSimulator().
+    public void setTraceWriter(TraceWriter writer)
+    {
+        traceWriter = writer;
     }
     
-    protected void startTimer(int entity, double increment)
+    public void runSimulator()
     {
-        if (traceLevel > 2)
+        // Like the links below, indexed by the destination of the packets
+        // they affect
+        LossModel loss = (lossModel != null) ? lossModel :
+            new BernoulliLoss(Math.min(Math.max(lossProb, 0.0), 1.0));
+        CorruptionModel corrupt = (corruptionModel != null) ?
+            corruptionModel :
+            new FieldCorruption(Math.min(Math.max(corruptProb, 0.0), 1.0));
+        lossModels = new LossModel[] { loss.copy(), loss.copy() };
+        corruptionModels = new CorruptionModel[] { corrupt.copy(),
+                                                   corrupt.copy() };
+        
+        if (linkConfig != null && topology == null)
         {
-            System.out.println("startTimer: starting timer at " + time);
+            // Indexed by the destination of the packets they carry
+            links = new Link[] { new Link(linkConfig), new Link(linkConfig) };
         }
-
-        Event t = eventList.removeTimer(entity);        
-
-        if (t != null)
+        else
         {
-            System.out.println("startTimer: Warning: Attempting to start a " +
-                               "timer that is already running");
-            eventList.add(t);
-            return;
+            links = null;
+        }
+        
+        if (addedFlows != null)
+        {
+            flows = new NetworkSimulator[addedFlows.size() + 1];
+            flows[0] = this;
+            for (int i = 1; i < flows.length; i++)
+            {
+                flows[i] = addedFlows.get(i - 1);
+            }
         }
         else
         {
-            Event timer = new Event(time + increment, TIMER_INTERRUPT, entity);
-            eventList.add(timer);
+            flows = null;
+        }
+        int flowCount = (flows != null) ? flows.length : 1;
+        flowStats = new FlowStats(flowCount);
+        buildTopology(flowCount);
+        boolean running = false;
+        for (int i = 0; i < flowCount; i++)
+        {
+            NetworkSimulator flow = flowAt(i * ENDPOINTS_PER_FLOW);
+            running |= flow.nSim < flow.maxMessages;
         }
-    }    
-    
-    protected void toLayer3(int callingEntity, Packet p)
-    {
-        nToLayer3++;
         
-        int destination;
-        double arrivalTime;
-        Packet packet = new Packet(p);
-    
-        if (traceLevel > 2)
+        boolean udp = (engine == Engine.UDP);
+        if (udp && topology != null)
         {
-            System.out.println("toLayer3: " + packet);
+            throw new IllegalStateException("the UDP engine cannot run a " +
+                                            "topology");
         }
-
-        // Set our destination
-        if (callingEntity == A)
+        double lookahead = getLookahead(flowCount);
+        boolean parallel = (engine == Engine.PARALLEL) && lookahead > 0.0 &&
+            traceLevel == 0 && traceWriter == null && running;
+        int processCount = parallel ? getProcessCount(flowCount) : 1;
+        logicalProcesses = new LogicalProcess[processCount];
+        for (int i = 0; i < processCount; i++)
         {
-            destination = B;
+            logicalProcesses[i] = new LogicalProcess(recycleEvents);
         }
-        else if (callingEntity == B)
+        networkProcess = parallel ? new LogicalProcess(recycleEvents) :
+            logicalProcesses[0];
+        processes = new LogicalProcess[] { processAt(A), processAt(B) };
+        threadProcess = parallel ? new ThreadLocal<LogicalProcess>() : null;
+        int endpointCount = flowCount * ENDPOINTS_PER_FLOW;
+        lastArrivalTimes = new double[endpointCount];
+        if (recycleEvents)
         {
-            destination = A;
+            timerHandles = new EventTimerHandle[endpointCount];
+            if (messages == null)
+            {
+                // One message per letter and size, made when first needed
+                messages = new Message[MESSAGE_DATA.length * MAX_DATA_SIZE];
+            }
         }
         else
         {
-            System.out.println("toLayer3: Warning: invalid packet sender");
-            return;
+            timerHandles = null;
+            messages = null;
         }
-
-        // Simulate losses
-        if (rand.nextDouble() < lossProb)
+        if (parallel && messages != null)
         {
-            nLost++;
-            
-            if (traceLevel > 0)
+            // Every A may make messages at once, so make them all first
+            for (int i = 0; i < messages.length; i++)
             {
-                System.out.println("toLayer3: packet being lost");
+                newMessage(i / MAX_DATA_SIZE, i % MAX_DATA_SIZE + 1);
             }
-            
-            return;
         }
         
-        // Simulate corruption
-        if (rand.nextDouble() < corruptProb)
+        socketStats = null;
+        if (udp)
+        {
+            try
+            {
+                channel = new UdpChannel(realTimeUnit);
+            }
+            catch (IOException ioe)
+            {
+                throw new IllegalStateException("cannot open the sockets",
+                                                ioe);
+            }
+        }
+        else
         {
-            nCorrupt++;
+            channel = null;
+        }
+        
+        File textTrace = null;
+        try
+        {
+            if (traceLevel > 0 && traceWriter == null)
+            {
+                textTrace = openTextTrace();
+            }
+            for (int i = 0; i < flowCount; i++)
+            {
+                NetworkSimulator flow = flowAt(i * ENDPOINTS_PER_FLOW);
+                if (flow != this)
+                {
+                    flow.join(this, i);
+                }
+                if (flow.nSim < flow.maxMessages)
+                {
+                    flow.processes[A].flowsRunning++;
+                }
+                flow.startFlow();
+            }
             
-            if (traceLevel > 0)
+            // Start the whole thing off by scheduling some data arrival
+            // from layer 5
+            for (int i = 0; i < flowCount; i++)
             {
-                System.out.println("toLayer3: packet being corrupted");
+                flowAt(i * ENDPOINTS_PER_FLOW).generateNextArrival();
             }
             
-            double x = rand.nextDouble();
-            if (x < 0.75)
+            if (udp)
             {
-                String payload = packet.getPayload();
-
-				if (payload.length() > 0)
-                	payload = "?" + payload.substring(payload.length() - 1);
-				else
-					payload = "?";
-                
-                packet.setPayload(payload);
+                runUdp();
             }
-            else if (x < 0.875)
+            else if (parallel)
             {
-                packet.setSeqnum(Math.abs(rand.nextInt()));
+                runParallel(lookahead);
             }
             else
             {
-                packet.setAcknum(Math.abs(rand.nextInt()));
+                runSequential();
+            }
+        }
+        finally
+        {
+            threadProcess = null;
+            closeChannel();
+            if (textTrace != null)
+            {
+                printTextTrace(textTrace);
             }
         }
         
-        // Decide when the packet will arrive.  Since the medium cannot
-        // reorder, the packet will arrive 1 to 10 time units after the
-        // last packet sent by this sender
-        arrivalTime = eventList.getLastPacketTime(destination);
+        // Every run has stats of its own, so running again does not add
+        // to the last run's
+        NetStats total = new NetStats();
+        for (int entity = A; entity <= B; entity++)
+        {
+            for (LogicalProcess process : logicalProcesses)
+            {
+                total.merge(process.stats[entity]);
+            }
+        }
+        total.setElapsedTime(elapsed);
+        stats = total;
+        flowStats.setElapsedTime(elapsed);
+    }
+    
+    // Starts recording the run into a temporary trace for the trace level
+    // to print, and returns the trace's file
+    private File openTextTrace()
+    {
+        try
+        {
+            File file = File.createTempFile("run", ".trace");
+            file.deleteOnExit();
+            traceWriter = new TraceWriter(file.getPath());
+            return file;
+        }
+        catch (IOException ioe)
+        {
+            throw new IllegalStateException("cannot open the trace", ioe);
+        }
+    }
+    
+    // Prints the trace the run was recorded into by openTextTrace(), one
+    // record a line as TraceTool --dump does, and deletes it
+    private void printTextTrace(File file)
+    {
+        TraceWriter writer = traceWriter;
+        traceWriter = null;
+        try
+        {
+            writer.close();
+            TraceReader in = new TraceReader(file.getPath());
+            try
+            {
+                TraceTool.dump(in, null, -1, Long.MAX_VALUE);
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException ioe)
+        {
+            throw new IllegalStateException("cannot print the trace", ioe);
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+    
+    // Makes this flow run on the network of "network", as its flow number
+    // "index"
+    private void join(NetworkSimulator network, int index)
+    {
+        host = network;
+        flowIndex = index;
+        firstEndpoint = index * ENDPOINTS_PER_FLOW;
+        traceWriter = network.traceWriter;
+        processes = new LogicalProcess[] {
+            network.processAt(firstEndpoint + A),
+            network.processAt(firstEndpoint + B) };
+        networkProcess = network.networkProcess;
+        threadProcess = network.threadProcess;
+        channel = network.channel;
+        timerResolution = network.timerResolution;
+        links = network.links;
+        linkConfig = network.linkConfig;
+        lossModels = network.lossModels;
+        corruptionModels = network.corruptionModels;
+        lossRand = network.lossRand;
+        corruptRand = network.corruptRand;
+        delayRand = network.delayRand;
+        topology = network.topology;
+        routes = network.routes;
+        topologyLinks = network.topologyLinks;
+        linkStats = network.linkStats;
+        linkArrivalTimes = network.linkArrivalTimes;
+        flowStats = network.flowStats;
+        recycleEvents = network.recycleEvents;
+        timerHandles = network.timerHandles;
+        lastArrivalTimes = network.lastArrivalTimes;
+        messages = network.messages;
+    }
+    
+    // Resets this flow's own state for a run and initializes its entities
+    private void startFlow()
+    {
+        layer5Blocked = false;
+        layer5Pending = false;
+        arrivals = (arrivalProcess != null) ? arrivalProcess.copy() :
+            new UniformArrivals(avgMessageDelay);
+        messageLimit = maxMessages;
+        messageTimes = new MessageTimes();
         
-        if (arrivalTime <= 0.0)
+        // Perform any student-required initialization
+        aInit();
+        bInit();
+    }
+    
+    // Sets up the topology's links and routes for a run, and checks that
+    // every flow's packets can get through
+    private void buildTopology(int flowCount)
+    {
+        if (topology == null)
         {
-            arrivalTime = time;
+            routes = null;
+            topologyLinks = null;
+            linkStats = null;
+            linkArrivalTimes = null;
+            return;
         }
         
-        arrivalTime = arrivalTime + 1.0 + (rand.nextDouble() * 9.0);
-
-        // Finally, create and schedule this event
-        if (traceLevel > 2)
+        routes = topology.buildRoutingTable();
+        int linkCount = topology.getLinkCount();
+        topologyLinks = new Link[linkCount];
+        linkStats = new LinkStats[linkCount];
+        linkArrivalTimes = new double[linkCount];
+        for (int i = 0; i < linkCount; i++)
+        {
+            topologyLinks[i] = new Link(topology.getLinkConfig(i));
+            linkStats[i] = new LinkStats(topology.getLinkName(i));
+        }
+        for (int i = 0; i < flowCount; i++)
         {
-            System.out.println("toLayer3: scheduling arrival on other side");
+            int a = topology.getHost(i, A);
+            int b = topology.getHost(i, B);
+            topology.path(routes, a, b);
+            topology.path(routes, b, a);
         }
-        Event arrival = new Event(arrivalTime, FROM_LAYER_3, destination, packet);
-        eventList.add(arrival);
     }
     
-    protected void toLayer5(int entity, String dataSent)
+    // The flow endpoint "address" belongs to
+    private NetworkSimulator flowAt(int address)
+    {
+        return (flows != null) ? flows[address / ENDPOINTS_PER_FLOW] : this;
+    }
+    
+    // The logical process endpoint "address" runs in.  The As take the
+    // first half of the processes, and the extra one if there is an odd
+    // number, and the Bs the rest; each side's flows are split over its
+    // processes in blocks, in order.
+    private LogicalProcess processAt(int address)
     {
-        if (traceLevel > 2)
+        int count = logicalProcesses.length;
+        if (count == 1)
+        {
+            return logicalProcesses[0];
+        }
+        int flowCount = (flows != null) ? flows.length : 1;
+        int flow = address / ENDPOINTS_PER_FLOW;
+        int aCount = (count + 1) / 2;
+        if (address % ENDPOINTS_PER_FLOW == A)
         {
-            System.out.print("toLayer5: data received:");
-            System.out.println(dataSent);
+            return logicalProcesses[flow * aCount / flowCount];
         }
+        return logicalProcesses[aCount + flow * (count - aCount) / flowCount];
     }
     
-    protected double getTime()
+    // The number of logical processes a parallel run of "flowCount" flows
+    // spreads its endpoints over
+    private int getProcessCount(int flowCount)
     {
-        return time;
+        int count = (parallelism > 0) ? parallelism :
+            Math.max(2, Runtime.getRuntime().availableProcessors());
+        return Math.min(count, flowCount * ENDPOINTS_PER_FLOW);
     }
     
-    protected void printEventList()
+    private void runSequential()
+    {
+        LogicalProcess process = processes[A];
+        Event next;
+        
+        // Begin the main loop
+        while (true)
+        {
+            // Get our next event
+            next = process.eventList.removeNext();
+            if (next == null)
+            {
+                break;
+            }
+            
+            // Advance the simulator's time
+            process.time = next.getTime();
+            process.events++;
+            
+            // If every flow has reached its maximum message count, exit
+            // the main loop
+            if (process.flowsRunning == 0)
+            {
+                break;
+            }
+            
+            dispatch(process, next);
+            process.release(next);
+        }
+        
+        nEvents = process.events;
+        elapsed = process.time;
+    }
+    
+    // Runs every flow in real time on the calling thread.  Each time
+    // round, the datagrams whose delay is up are sent, then one packet
+    // that has arrived or one event that is due is dispatched, at the
+    // time on the wall clock.  When there is neither, the loop waits on
+    // the sockets until the next is due.
+    private void runUdp()
     {
-        System.out.println(eventList.toString());
+        LogicalProcess process = processes[A];
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean measureCpu = threads.isCurrentThreadCpuTimeSupported();
+        long cpuStart = measureCpu ? threads.getCurrentThreadCpuTime() : -1;
+        long start = System.nanoTime();
+        int endpoints = ((flows != null) ? flows.length : 1) *
+            ENDPOINTS_PER_FLOW;
+        Event next;
+        
+        try
+        {
+            while (true)
+            {
+                channel.sendDue();
+                process.time = channel.now();
+                
+                Packet p = channel.receive();
+                if (p != null && channel.getReceivedAddress() >= endpoints)
+                {
+                    // Not for any flow of this run
+                    continue;
+                }
+                if (p != null)
+                {
+                    next = newPacketEvent(process, channel.getReceivedAddress(),
+                                          p);
+                    next.setTime(process.time);
+                }
+                else if (process.eventList.nextTime() <= process.time)
+                {
+                    next = process.eventList.removeNext();
+                }
+                else
+                {
+                    // Datagrams still in flight get a while to arrive
+                    // once nothing else is left
+                    double wake = Math.min(process.eventList.nextTime(),
+                                           channel.nextSendTime());
+                    if (!channel.await(wake, IDLE_TIMEOUT) &&
+                        wake == Double.POSITIVE_INFINITY)
+                    {
+                        break;
+                    }
+                    continue;
+                }
+                process.events++;
+                
+                if (process.flowsRunning == 0)
+                {
+                    break;
+                }
+                
+                dispatch(process, next);
+                process.release(next);
+            }
+        }
+        catch (IOException ioe)
+        {
+            throw new IllegalStateException("socket failed", ioe);
+        }
+        
+        socketStats = channel.getStats();
+        socketStats.setWallNanos(System.nanoTime() - start);
+        if (measureCpu)
+        {
+            socketStats.setCpuNanos(threads.getCurrentThreadCpuTime() -
+                                    cpuStart);
+        }
+        nEvents = process.events;
+        elapsed = process.time;
+    }
+    
+    private void closeChannel()
+    {
+        if (channel == null)
+        {
+            return;
+        }
+        try
+        {
+            channel.close();
+        }
+        catch (IOException ioe)
+        {
+            // Nothing more is sent or received
+        }
+        channel = null;
+    }
+    
+    // Runs the logical processes on threads of their own, the first on the
+    // calling thread.  They dispatch the events of one time window, then
+    // wait for each other at a barrier; there, the network runs and the
+    // next window is set.
+    private void runParallel(double lookahead)
+    {
+        final double windowLength = lookahead;
+        failure = null;
+        finished = false;
+        windowEnd = Double.NEGATIVE_INFINITY;
+        updateBound();
+        nextWindow(windowLength);
+        
+        final CyclicBarrier barrier = new CyclicBarrier(
+            logicalProcesses.length, new Runnable()
+        {
+            public void run()
+            {
+                endPhase(windowLength);
+            }
+        });
+        Thread[] workers = new Thread[logicalProcesses.length - 1];
+        for (int i = 0; i < workers.length; i++)
+        {
+            final LogicalProcess process = logicalProcesses[i + 1];
+            workers[i] = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    runWindows(process, barrier);
+                }
+            }, "logical-process-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        runWindows(logicalProcesses[0], barrier);
+        
+        try
+        {
+            for (Thread worker : workers)
+            {
+                worker.join();
+            }
+        }
+        catch (InterruptedException ie)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted waiting for the " +
+                                            "logical processes", ie);
+        }
+        if (failure instanceof RuntimeException)
+        {
+            throw (RuntimeException)failure;
+        }
+        if (failure instanceof Error)
+        {
+            throw (Error)failure;
+        }
+        
+        nEvents = networkProcess.events;
+        elapsed = networkProcess.time;
+        double next = networkProcess.eventList.nextTime();
+        boolean running = false;
+        for (LogicalProcess process : logicalProcesses)
+        {
+            nEvents += process.events;
+            elapsed = Math.max(elapsed, process.time);
+            next = Math.min(next, process.eventList.nextTime());
+            running |= process.flowsRunning > 0;
+        }
+        
+        // The sequential loop also counts the event it stops at, and ends
+        // at its time
+        if (!running && next != Double.POSITIVE_INFINITY)
+        {
+            nEvents++;
+            elapsed = next;
+        }
+    }
+    
+    private void runWindows(LogicalProcess process, CyclicBarrier barrier)
+    {
+        threadProcess.set(process);
+        try
+        {
+            while (!finished)
+            {
+                runWindow(process);
+                barrier.await();
+            }
+        }
+        catch (BrokenBarrierException bbe)
+        {
+            // Another process failed, and will report it
+        }
+        catch (InterruptedException ie)
+        {
+            fail(ie);
+        }
+        catch (RuntimeException re)
+        {
+            fail(re);
+            barrier.reset();
+        }
+        catch (Error e)
+        {
+            fail(e);
+            barrier.reset();
+        }
+    }
+    
+    // Dispatches a process's events up to the end of the window.  Once
+    // every flow whose A is in the process has been handed its last
+    // message, another process may end the run at any time, so it only
+    // goes on up to windowBound.
+    private void runWindow(LogicalProcess process)
+    {
+        while (true)
+        {
+            double t = process.eventList.nextTime();
+            if (t >= windowEnd ||
+                (process.flowsRunning == 0 && t >= windowBound))
+            {
+                return;
+            }
+            
+            Event next = process.eventList.removeNext();
+            process.time = t;
+            process.events++;
+            dispatch(process, next);
+            process.release(next);
+        }
+    }
+    
+    // Ends a phase of the window, while every process waits.  If a process
+    // stopped at windowBound and may now go further, the window gets
+    // another phase.  Otherwise the network runs, and the next window is
+    // set or the run finishes.
+    private void endPhase(double lookahead)
+    {
+        boolean running = updateBound();
+        double limit = Math.min(windowEnd, windowBound);
+        for (LogicalProcess process : logicalProcesses)
+        {
+            if (process.flowsRunning == 0 &&
+                process.eventList.nextTime() < limit)
+            {
+                return;
+            }
+        }
+        
+        if (!running)
+        {
+            // The run ends at windowBound
+            runNetwork(windowBound);
+            finished = true;
+            return;
+        }
+        runNetwork(windowEnd);
+        nextWindow(lookahead);
+    }
+    
+    // Sets windowBound, the time processes whose flows have all been
+    // handed their last message may go up to: the end of the run, once no
+    // flow is running, and otherwise a time the run is bound to reach.  A
+    // process with a running flow has been through the whole window, and
+    // its last message comes after it.  Returns whether a flow is running.
+    private boolean updateBound()
+    {
+        boolean running = false;
+        double end = Double.NEGATIVE_INFINITY;
+        double bound = windowEnd;
+        for (LogicalProcess process : logicalProcesses)
+        {
+            running |= process.flowsRunning > 0;
+            end = Math.max(end, process.doneTime);
+            bound = Math.max(bound, process.endBound);
+        }
+        windowBound = running ? bound : end;
+        return running;
+    }
+    
+    // Puts the packets sent in the window through the channel, links and
+    // routers in the order they were sent, along with the packets crossing
+    // the topology that reach a router before "until", and hands them to
+    // the processes they are for
+    private void runNetwork(double until)
+    {
+        LogicalProcess network = networkProcess;
+        List<Event> sent = network.outbox;
+        for (LogicalProcess process : logicalProcesses)
+        {
+            sent.addAll(process.outbox);
+            process.outbox.clear();
+        }
+        Collections.sort(sent, SEND_ORDER);
+        
+        int i = 0;
+        while (true)
+        {
+            double hop = network.eventList.nextTime();
+            if (i < sent.size() && sent.get(i).getTime() <= hop)
+            {
+                Event packet = sent.get(i++);
+                network.time = packet.getTime();
+                flowAt(packet.getEntity()).transmit(packet);
+            }
+            else if (hop < until)
+            {
+                Event packet = network.eventList.removeNext();
+                network.time = hop;
+                network.events++;
+                dispatch(network, packet);
+                network.release(packet);
+            }
+            else
+            {
+                break;
+            }
+        }
+        sent.clear();
+    }
+    
+    // Sets the next window, from the earliest event anywhere, or finishes
+    // the run if there is none
+    private void nextWindow(double lookahead)
+    {
+        double next = networkProcess.eventList.nextTime();
+        for (LogicalProcess process : logicalProcesses)
+        {
+            next = Math.min(next, process.eventList.nextTime());
+        }
+        if (next == Double.POSITIVE_INFINITY)
+        {
+            finished = true;
+            return;
+        }
+        // A packet sent at the window's start arrives exactly at its end,
+        // give or take rounding, so stay a few ulps clear of it
+        windowEnd = next + lookahead;
+        windowEnd -= 4 * Math.ulp(windowEnd);
+    }
+    
+    private void fail(Throwable t)
+    {
+        if (failure == null)
+        {
+            failure = t;
+        }
+        finished = true;
+    }
+    
+    // The smallest delay a packet can have between two endpoints, or 0 if
+    // it can arrive at once
+    private double getLookahead(int flowCount)
+    {
+        if (topology != null)
+        {
+            // The routers forward between windows, so only the first and
+            // the last link of a path count: those that leave or reach
+            // the node of an endpoint
+            boolean[] hosts = new boolean[topology.getNodeCount()];
+            for (int i = 0; i < flowCount; i++)
+            {
+                int a = topology.getHost(i, A);
+                int b = topology.getHost(i, B);
+                if (a == b)
+                {
+                    return 0.0;
+                }
+                hosts[a] = true;
+                hosts[b] = true;
+            }
+            double lookahead = Double.POSITIVE_INFINITY;
+            for (int link = 0; link < topology.getLinkCount(); link++)
+            {
+                if (hosts[topology.getLinkFrom(link)] ||
+                    hosts[topology.getLinkTo(link)])
+                {
+                    LinkConfig config = topology.getLinkConfig(link);
+                    lookahead = Math.min(lookahead,
+                        config.getPropagationDelay() +
+                        config.serializationDelay(BinaryPacket.HEADER_SIZE));
+                }
+            }
+            return lookahead;
+        }
+        if (links == null)
+        {
+            // The original channel delays every packet by at least 1
+            return 1.0;
+        }
+        return linkConfig.getPropagationDelay() +
+            linkConfig.serializationDelay(BinaryPacket.HEADER_SIZE);
+    }
+    
+    // Handles one event in the given process
+    private void dispatch(LogicalProcess process, Event next)
+    {
+        int address = next.getEntity();
+        if (address == WHEEL)
+        {
+            fireWheelTimers(process);
+            return;
+        }
+        
+        NetworkSimulator flow = flowAt(address);
+        flow.handle(next, address - flow.firstEndpoint);
+    }
+    
+    // Handles an event for one of this flow's entities
+    private void handle(Event next, int entity)
+    {
+        // Perform the appropriate action based on the event 
+        switch (next.getType())
+        {
+            case TIMER_INTERRUPT:
+                if (traceWriter != null)
+                {
+                    traceWriter.write(processes[entity].time,
+                                      Trace.Kind.TIMEOUT, Trace.Outcome.OK,
+                                      next.getEntity(), -1, -1, 0,
+                                      TimerHandle.NO_TIMER_ID);
+                }
+                timerInterrupt(entity, TimerHandle.NO_TIMER_ID);
+                break;
+                
+            case FROM_LAYER_3:
+                if (next.getNode() >= 0)
+                {
+                    forward(next, entity);
+                    break;
+                }
+                tracePacket(processes[entity], Trace.Kind.RECEIVE,
+                            Trace.Outcome.OK, entity, next.getPacket(), -1);
+                if (entity == A)
+                {
+                    aInput(next.getPacket());
+                }
+                else if (entity == B)
+                {
+                    bInput(next.getPacket());
+                }
+                else
+                {
+                    System.out.println("INTERNAL PANIC: Packet has " +
+                                       "arrived for unknown entity");
+                }
+                
+                break;
+                
+            case FROM_LAYER_5:
+                
+                // A flow that is done waits for the others without
+                // generating any more messages
+                if (nSim >= messageLimit)
+                {
+                    break;
+                }
+                
+                // A blocked layer 5 holds on to its message until
+                // unblockLayer5() is called
+                if (layer5Blocked)
+                {
+                    layer5Pending = true;
+                    break;
+                }
+                
+                // If a message has arrived from layer 5, we need to
+                // schedule the arrival of the next message
+                generateNextArrival();
+                
+                // Now, let's pick the contents of this message
+                int j = nSim % 26;
+                int size = (messageSize != null) ?
+                    messageSize.next(sizeRand) : MAX_DATA_SIZE;
+                
+                // Increment the message counter
+                nSim++;
+                flowStats.message(flowIndex);
+                if (nSim >= messageLimit)
+                {
+                    LogicalProcess process = processes[A];
+                    process.flowsRunning--;
+                    if (process.flowsRunning == 0)
+                    {
+                        process.doneTime = process.time;
+                    }
+                }
+                
+                if (traceWriter != null)
+                {
+                    traceWriter.write(processes[A].time, Trace.Kind.MESSAGE,
+                                      Trace.Outcome.OK, firstEndpoint + A,
+                                      nSim - 1, -1, size, -1);
+                }
+                
+                // Let the student handle the new message
+                messageTimes.add(processes[A].time);
+                aOutput(newMessage(j, size));
+                break;
+                
+            default:
+                System.out.println("INTERNAL PANIC: Unknown event type");
+        }    
+    }
+    
+    // Called when a timer expires.  "timerId" is the id the timer was
+    // started with, or TimerHandle.NO_TIMER_ID for the single per-entity
+    // timer.  Protocols with numbered timers override this; by default
+    // every timeout at A goes to aTimerInterrupt().
+    protected void timerInterrupt(int entity, int timerId)
+    {
+        if (entity == A)
+        {
+            aTimerInterrupt();
+        }
+        else
+        {
+            System.out.println("INTERNAL PANIC: Timeout for " +
+                               "invalid entity");
+        }
+    }
+    
+    /* Generate the next arrival and add it to the event list */
+    private void generateNextArrival()
+    {
+        double x = arrivals.nextGap(arrivalRand);
+        if (x == Double.POSITIVE_INFINITY)
+        {
+            // The message being handed to A is the last one, so the run
+            // ends once it has been, as it would at maxMessages
+            messageLimit = Math.min(messageLimit, nSim + 1);
+            return;
+        }
+                
+        LogicalProcess process = processes[A];
+        Event next = newEvent(process, process.time + x, FROM_LAYER_5,
+                              firstEndpoint + A);
+                
+        process.eventList.add(next);
+        // Unless the message being handed to A is the last, this one is
+        // certain to be handed over too, so the run lasts at least until
+        // it arrives
+        if (nSim + 1 < messageLimit)
+        {
+            process.endBound = Math.max(process.endBound, next.getTime());
+        }
+    }
+    
+    protected void stopTimer(int entity)
+    {
+        Event timer = processes[entity].eventList.removeTimer(
+            firstEndpoint + entity);
+        if (traceWriter != null)
+        {
+            traceWriter.write(getTime(), Trace.Kind.TIMER_STOP,
+                              (timer != null) ? Trace.Outcome.OK :
+                                  Trace.Outcome.FAILED,
+                              firstEndpoint + entity, -1, -1, 0,
+                              TimerHandle.NO_TIMER_ID);
+        }
+
+        // Let the student know they are attempting to cancel a non-existant 
+        // timer
+        if (timer == null)
+        {
+            System.out.println("stopTimer: Warning: Unable to cancel your " +
+                               "timer");
+        }        
+    }
+    
+    protected void stopTimer(TimerHandle handle)
+    {
+        // The handle records a timer it cancels, so only a failure is
+        // recorded here
+        boolean cancelled = handle.cancel();
+        if (!cancelled && traceWriter != null)
+        {
+            traceWriter.write(getTime(), Trace.Kind.TIMER_STOP,
+                              Trace.Outcome.FAILED, handle.getEntity(), -1,
+                              -1, 0, handle.getTimerId());
+        }
+        if (!cancelled)
+        {
+            System.out.println("stopTimer: Warning: Unable to cancel your " +
+                               "timer");
+        }
+    }
+    
+    protected TimerHandle startTimer(int entity, double increment)
+    {
+        LogicalProcess process = processes[entity];
+        Event t = process.eventList.getTimer(firstEndpoint + entity);
+        if (traceWriter != null)
+        {
+            traceWriter.write(process.time, Trace.Kind.TIMER_START,
+                              (t == null) ? Trace.Outcome.OK :
+                                  Trace.Outcome.FAILED,
+                              firstEndpoint + entity, -1, -1, 0,
+                              TimerHandle.NO_TIMER_ID);
+        }
+
+        if (t != null)
+        {
+            System.out.println("startTimer: Warning: Attempting to start a " +
+                               "timer that is already running");
+            return newTimerHandle(process, t);
+        }
+        else
+        {
+            Event timer = newEvent(process, process.time + increment,
+                                   TIMER_INTERRUPT, firstEndpoint + entity);
+            process.eventList.add(timer);
+            return newTimerHandle(process, timer);
+        }
+    }    
+    
+    // Starts one of any number of timers at "entity", identified by
+    // "timerId", which is passed to timerInterrupt() when it expires.
+    // Scheduling and cancelling are O(1) regardless of how many timers
+    // are running.
+    protected TimerHandle startTimer(int entity, double increment,
+                                     int timerId)
+    {
+        // Each process has its own wheel, driven by its own events and
+        // shared by the flows in it
+        LogicalProcess process = processes[entity];
+        if (process.timingWheel == null)
+        {
+            process.timingWheel = new TimingWheel(timerResolution);
+            process.timingWheel.setCancelListener(cancelListener());
+        }
+        
+        TimerHandle timer = process.timingWheel.schedule(
+            firstEndpoint + entity, timerId, process.time,
+            process.time + increment);
+        if (traceWriter != null)
+        {
+            traceWriter.write(process.time, Trace.Kind.TIMER_START,
+                              Trace.Outcome.OK, firstEndpoint + entity, -1,
+                              -1, 0, timerId);
+        }
+        scheduleWheel(process);
+        return timer;
+    }
+    
+    private void fireWheelTimers(LogicalProcess process)
+    {
+        if (process.time >= process.wheelWakeTime)
+        {
+            process.wheelWakeTime = Double.POSITIVE_INFINITY;
+        }
+        
+        process.timingWheel.advance(process.time);
+        TimerHandle timer = process.timingWheel.pollExpired();
+        while (timer != null)
+        {
+            if (traceWriter != null)
+            {
+                traceWriter.write(process.time, Trace.Kind.TIMEOUT,
+                                  Trace.Outcome.OK, timer.getEntity(), -1, -1,
+                                  0, timer.getTimerId());
+            }
+            NetworkSimulator flow = flowAt(timer.getEntity());
+            flow.timerInterrupt(timer.getEntity() - flow.firstEndpoint,
+                                timer.getTimerId());
+            timer = process.timingWheel.pollExpired();
+        }
+        scheduleWheel(process);
+    }
+    
+    // Makes sure an event is pending for the wheel's next due slot.  An
+    // event left behind by an earlier, later wake-up is harmless.
+    private void scheduleWheel(LogicalProcess process)
+    {
+        double wake = Math.max(process.time,
+                               process.timingWheel.nextWakeTime());
+        if (wake < process.wheelWakeTime)
+        {
+            process.wheelWakeTime = wake;
+            process.eventList.add(newEvent(process, wake, TIMER_INTERRUPT,
+                                           WHEEL));
+        }
+    }
+    
+    private Event newEvent(LogicalProcess process, double t, int type,
+                           int entity)
+    {
+        if (process.eventPool != null)
+        {
+            return process.eventPool.obtain(t, type, entity);
+        }
+        return new Event(t, type, entity);
+    }
+    
+    private TimerHandle newTimerHandle(LogicalProcess process, Event timer)
+    {
+        if (timerHandles == null)
+        {
+            return new EventTimerHandle(process.eventList, timer,
+                                        cancelListener());
+        }
+        
+        // A handle stays with the event list it was made for
+        int entity = timer.getEntity();
+        if (timerHandles[entity] == null ||
+            !timerHandles[entity].belongsTo(process.eventList))
+        {
+            timerHandles[entity] = new EventTimerHandle(process.eventList,
+                                                        timer,
+                                                        cancelListener());
+        }
+        timerHandles[entity].bind(timer);
+        return timerHandles[entity];
+    }
+    
+    // What timer handles tell about the timers they cancel: nothing
+    // unless the run is being recorded
+    private TimerHandle.CancelListener cancelListener()
+    {
+        return (traceWriter != null) ? cancelTracer : null;
+    }
+    
+    // Returns a message of the given letter and size, shared if events are
+    // recycled
+    private Message newMessage(int letter, int size)
+    {
+        if (messages == null)
+        {
+            return new Message(MESSAGE_DATA[letter].substring(0, size));
+        }
+        int i = letter * MAX_DATA_SIZE + size - 1;
+        if (messages[i] == null)
+        {
+            messages[i] = new Message(MESSAGE_DATA[letter].substring(0, size));
+        }
+        return messages[i];
+    }
+    
+    // Whether layer 5 always has another message ready, as in a bulk
+    // transfer.  Such a layer 5 should be blocked rather than have its
+    // messages dropped when A's send buffer is full.
+    protected boolean isLayer5Backlogged()
+    {
+        return arrivals != null && arrivals.isBacklogged();
+    }
+    
+    // Called by A when it drops a message rather than send it, e.g. when
+    // its send buffer is full.  "arrival" is the time layer 5 handed the
+    // message over, as getTime() said when aOutput() was called with it.
+    protected void dropMessage(double arrival)
+    {
+        messageTimes.drop(arrival);
+        getNetStats(A).dropMsg();
+    }
+    
+    // Stops layer 5 from handing messages to A, e.g. while A's send
+    // buffer is full.  A message that comes due meanwhile waits, and
+    // no further messages are generated until unblockLayer5().
+    protected void blockLayer5()
+    {
+        layer5Blocked = true;
+    }
+    
+    // Lets layer 5 continue.  A message held back while it was blocked
+    // is handed to A at once.
+    protected void unblockLayer5()
+    {
+        layer5Blocked = false;
+        if (layer5Pending)
+        {
+            layer5Pending = false;
+            LogicalProcess process = processes[A];
+            process.eventList.add(newEvent(process, process.time,
+                                           FROM_LAYER_5, firstEndpoint + A));
+        }
+    }
+    
+    // Forwards a packet that has reached a router of the topology.  The
+    // event it arrived in is recycled once handled, so it moves on in a
+    // new one.
+    private void forward(Event arrived, int destination)
+    {
+        Event hop = newPacketEvent(networkProcess, destination,
+                                   arrived.getPacket());
+        route(hop, arrived.getNode());
+    }
+    
+    // Sends the packet in "packet", an event for one of this flow's
+    // endpoints, from "node" over the next link towards that endpoint's
+    // node, or hands it to the endpoint if it is there
+    private void route(Event packet, int node)
+    {
+        LogicalProcess process = networkProcess;
+        int destination = packet.getEntity() - firstEndpoint;
+        int senderSide = (destination == A) ? B : A;
+        int target = topology.getHost(flowIndex, destination);
+        if (node == target)
+        {
+            packet.setTime(process.time);
+            packet.setNode(-1);
+            arrive(packet, destination);
+            return;
+        }
+        
+        int link = routes[node][target];
+        Link next = topologyLinks[link];
+        double arrivalTime = next.send(process.time,
+                                       packet.getPacket().getSize(),
+                                       delayRand[destination]);
+        if (arrivalTime == Link.DROPPED)
+        {
+            tracePacket(process, Trace.Kind.FORWARD, Trace.Outcome.DROPPED,
+                        senderSide, packet.getPacket(), link);
+            linkStats[link].dropped(next.getQueueLength());
+            processes[senderSide].stats[senderSide].linkDrop();
+            process.release(packet);
+            
+            return;
+        }
+        tracePacket(process, Trace.Kind.FORWARD, Trace.Outcome.OK, senderSide,
+                    packet.getPacket(), link);
+        linkStats[link].accepted(next.getQueueLength() - 1,
+                                 next.getLastQueueDelay());
+        processes[senderSide].stats[senderSide].linkQueued(
+            next.getLastQueueDelay());
+        
+        // Jitter must not let the packet overtake the one before it
+        arrivalTime = Math.max(arrivalTime, linkArrivalTimes[link]);
+        linkArrivalTimes[link] = arrivalTime;
+        int reached = topology.getLinkTo(link);
+        packet.setTime(arrivalTime);
+        if (reached == target)
+        {
+            packet.setNode(-1);
+            arrive(packet, destination);
+        }
+        else
+        {
+            packet.setNode(reached);
+            process.eventList.add(packet);
+        }
+    }
+    
+    // Schedules the arrival of "packet" at this flow's "destination".  In
+    // a parallel run, the network hands packets over between windows, and
+    // the endpoint's process has already been through the last one.
+    private void arrive(Event packet, int destination)
+    {
+        LogicalProcess process = processes[destination];
+        if (process != networkProcess && packet.getTime() < host.windowEnd)
+        {
+            throw new IllegalStateException("packet arrives at " +
+                packet.getTime() + ", inside the window it was sent in");
+        }
+        process.eventList.add(packet);
+    }
+    
+    // Records something that happened to "p" at this flow's "entity" in
+    // the binary trace, if there is one
+    private void tracePacket(LogicalProcess process, Trace.Kind kind,
+                             Trace.Outcome outcome, int entity, Packet p,
+                             int extra)
+    {
+        if (traceWriter != null)
+        {
+            traceWriter.write(process.time, kind, outcome,
+                              firstEndpoint + entity, p.getSeqnum(),
+                              p.getAcknum(), p.getSize(), extra);
+        }
+    }
+    
+    // Returns a FROM_LAYER_3 event carrying "p" to this flow's "entity"
+    private Event newPacketEvent(LogicalProcess process, int entity, Packet p)
+    {
+        if (process.eventPool != null)
+        {
+            return process.eventPool.obtain(0.0, FROM_LAYER_3,
+                                            firstEndpoint + entity, p);
+        }
+        return new Event(0.0, FROM_LAYER_3, firstEndpoint + entity, p);
+    }
+    
+    protected void toLayer3(int callingEntity, Packet p)
+    {
+        int destination;
+    
+        // Set our destination
+        if (callingEntity == A)
+        {
+            destination = B;
+        }
+        else if (callingEntity == B)
+        {
+            destination = A;
+        }
+        else
+        {
+            System.out.println("toLayer3: Warning: invalid packet sender");
+            return;
+        }
+        
+        LogicalProcess process = processes[callingEntity];
+        process.nToLayer3++;
+        if (callingEntity == A)
+        {
+            flowStats.packet(flowIndex);
+        }
+        
+        // Copy the packet into its arrival event, so that the corruption
+        // below and any later changes by the sender don't interfere.
+        // Binary packets can't be changed, so they are carried as they are
+        // and only copied if they get corrupted.
+        Event arrival = newPacketEvent(process, destination, p);
+        
+        // In a parallel run, the network takes the packet when the window
+        // ends
+        if (process != networkProcess)
+        {
+            arrival.setTime(process.time);
+            process.outbox.add(arrival);
+            return;
+        }
+        transmit(arrival);
+    }
+    
+    // Puts the packet in "arrival", sent by one of this flow's endpoints
+    // at the network's current time, through the channel, link or
+    // topology, and schedules its arrival at the other endpoint unless it
+    // is lost on the way
+    private void transmit(Event arrival)
+    {
+        int destination = arrival.getEntity() - firstEndpoint;
+        int callingEntity = (destination == A) ? B : A;
+        double arrivalTime;
+        
+        // Everything below belongs to the network's process, except for
+        // what the sender's process counts
+        LogicalProcess process = networkProcess;
+        LogicalProcess sender = processes[callingEntity];
+        NetStats senderStats = sender.stats[callingEntity];
+        Packet p = arrival.getPacket();
+
+        // Queue the packet on the link, if there is one.  It is sent even
+        // if it is then lost on the wire below.
+        if (links != null)
+        {
+            arrivalTime = links[destination].send(process.time, p.getSize(),
+                                                  delayRand[destination]);
+            if (arrivalTime == Link.DROPPED)
+            {
+                senderStats.linkDrop();
+                tracePacket(process, Trace.Kind.SEND, Trace.Outcome.DROPPED,
+                            callingEntity, p, -1);
+                process.release(arrival);
+                
+                return;
+            }
+            senderStats.linkQueued(links[destination].getLastQueueDelay());
+        }
+        else
+        {
+            arrivalTime = 0.0;
+        }
+        
+        // Simulate losses
+        if (lossModels[destination].isLost(lossRand[destination]))
+        {
+            sender.nLost++;
+            tracePacket(process, Trace.Kind.SEND, Trace.Outcome.LOST,
+                        callingEntity, p, -1);
+            process.release(arrival);
+            
+            return;
+        }
+        
+        // Simulate corruption
+        Packet corrupted = corruptionModels[destination].corrupt(
+            arrival.getPacket(), corruptRand[destination]);
+        if (corrupted != null)
+        {
+            sender.nCorrupt++;
+            
+            arrival.sharePacket(corrupted);
+        }
+        tracePacket(process, Trace.Kind.SEND, (corrupted != null) ?
+                        Trace.Outcome.CORRUPTED : Trace.Outcome.OK,
+                    callingEntity, p, -1);
+        
+        // Across a topology, the routers decide
+        if (topologyLinks != null)
+        {
+            route(arrival, topology.getHost(flowIndex, callingEntity));
+            return;
+        }
+        
+        // Decide when the packet will arrive.  The medium cannot reorder.
+        if (links != null)
+        {
+            // The link has already decided, but jitter must not let the
+            // packet overtake the one before it
+            arrivalTime = Math.max(arrivalTime,
+                                   lastArrivalTimes[firstEndpoint +
+                                                    destination]);
+        }
+        else
+        {
+            // The packet will arrive 1 to 10 time units after the last
+            // packet sent by this sender, or after now if that one has
+            // already arrived
+            arrivalTime = Math.max(process.time,
+                                   lastArrivalTimes[firstEndpoint +
+                                                    destination]);
+            
+            arrivalTime = arrivalTime + 1.0 +
+                (delayRand[destination].nextDouble() * 9.0);
+        }
+        lastArrivalTimes[firstEndpoint + destination] = arrivalTime;
+
+        // On the UDP engine, the packet waits out its delay in the channel
+        // and then goes over the sockets
+        if (channel != null)
+        {
+            try
+            {
+                channel.send(arrival.getEntity(), arrival.getPacket(),
+                             arrivalTime);
+            }
+            catch (IOException ioe)
+            {
+                throw new IllegalStateException("socket failed", ioe);
+            }
+            process.release(arrival);
+            return;
+        }
+
+        // Finally, schedule this event
+        arrival.setTime(arrivalTime);
+        arrive(arrival, destination);
+    }
+    
+    protected void toLayer5(int entity, String dataSent)
+    {
+        if (entity == B)
+        {
+            flowStats.delivered(flowIndex, dataSent.length());
+            getNetStats(B).msgDelivered(processes[B].time -
+                                        messageTimes.take());
+        }
+        if (traceWriter != null)
+        {
+            traceWriter.write(getTime(), Trace.Kind.DELIVER, Trace.Outcome.OK,
+                              firstEndpoint + entity, -1, -1,
+                              dataSent.length(), -1);
+        }
+    }
+    
+    // The current time of the calling entity
+    protected double getTime()
+    {
+        ThreadLocal<LogicalProcess> current = threadProcess;
+        if (current != null)
+        {
+            LogicalProcess process = current.get();
+            if (process != null)
+            {
+                return process.time;
+            }
+        }
+        return (processes != null) ? processes[A].time : 0.0;
+    }
+    
+    // The statistics of this simulation's last run, complete once
+    // runSimulator() has returned, and empty before the first
+    public NetStats getNetStats()
+    {
+        if (stats == null)
+        {
+            stats = new NetStats();
+        }
+        return stats;
+    }
+    
+    // The statistics "entity" records into while the simulation runs.  A
+    // protocol should record everything an entity does here, since with
+    // the parallel engine each entity runs on the thread of its logical
+    // process.  Every flow in the process shares them.
+    protected NetStats getNetStats(int entity)
+    {
+        if (processes == null)
+        {
+            throw new IllegalStateException("the simulation has not run");
+        }
+        return processes[entity].stats[entity];
+    }
+    
+    // What happened at each link of the topology in the last run, in the
+    // order of the topology's links, or null without a topology
+    public LinkStats[] getLinkStats()
+    {
+        return linkStats;
+    }
+    
+    // What the sockets did in the last run, or null unless it was on the
+    // UDP engine
+    public SocketStats getSocketStats()
+    {
+        return (engine == Engine.UDP) ? socketStats : null;
+    }
+    
+    // What each flow sent and delivered in the last run, or null before
+    // the first
+    public FlowStats getFlowStats()
+    {
+        return flowStats;
+    }
+    
+    // The number of events runSimulator() has dispatched
+    public long getEventCount()
+    {
+        return nEvents;
+    }
+    
+    protected void printEventList()
+    {
+        if (processes == null)
+        {
+            return;
+        }
+        System.out.println(processes[A].eventList.toString());
+        if (processes[B] != processes[A])
+        {
+            System.out.println(processes[B].eventList.toString());
+        }
     }
     
 }
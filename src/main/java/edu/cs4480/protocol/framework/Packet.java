@@ -80,6 +80,16 @@ public class Packet
         }
     }
     
+    // Field-by-field copy for recycled events; "p" was validated when it
+    // was built
+    void copyFrom(Packet p)
+    {
+        seqnum = p.getSeqnum();
+        acknum = p.getAcknum();
+        checksum = p.getChecksum();
+        payload = p.getPayload();
+    }
+    
     public int getSeqnum()
     {
         return seqnum;
@@ -100,10 +110,44 @@ public class Packet
         return payload;
     }
     
+    // The size of this packet on the wire, laid out as a BinaryPacket
+    public int getSize()
+    {
+        return BinaryPacket.HEADER_SIZE + getPayload().length();
+    }
+    
+    // The corruptions of the original channel, used by FieldCorruption.
+    // Each returns the corrupted packet, which is a copy for packet types
+    // that cannot be modified.
+    public Packet corruptPayload()
+    {
+        String p = getPayload();
+
+        if (p.length() > 0)
+            p = "?" + p.substring(p.length() - 1);
+        else
+            p = "?";
+
+        setPayload(p);
+        return this;
+    }
+    
+    public Packet corruptSeqnum(int n)
+    {
+        setSeqnum(n);
+        return this;
+    }
+    
+    public Packet corruptAcknum(int n)
+    {
+        setAcknum(n);
+        return this;
+    }
+    
     public String toString()
     {
-        return("seqnum: " + seqnum + "  acknum: " + acknum + "  checksum: " +
-               checksum + "  payload: " + payload);
+        return("seqnum: " + getSeqnum() + "  acknum: " + getAcknum() +
+               "  checksum: " + getChecksum() + "  payload: " + getPayload());
     }
     
 }
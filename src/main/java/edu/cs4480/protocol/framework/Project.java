@@ -1,6 +1,21 @@
 package edu.cs4480.protocol.framework;
 
-import edu.cs4480.protocol.stats.NetStats;
+import edu.cs4480.protocol.link.BernoulliLoss;
+import edu.cs4480.protocol.link.BitErrorCorruption;
+import edu.cs4480.protocol.link.CorruptionModel;
+import edu.cs4480.protocol.link.FieldCorruption;
+import edu.cs4480.protocol.link.GilbertElliottLoss;
+import edu.cs4480.protocol.link.LinkConfig;
+import edu.cs4480.protocol.link.LossModel;
+import edu.cs4480.protocol.link.Topology;
+import edu.cs4480.protocol.link.TraceLoss;
+import edu.cs4480.protocol.stats.LinkStats;
+import edu.cs4480.protocol.traffic.ArrivalProcess;
+import edu.cs4480.protocol.traffic.Arrivals;
+import edu.cs4480.protocol.traffic.MessageSize;
+import edu.cs4480.protocol.trace.TraceWriter;
+import edu.cs4480.protocol.traffic.TraceArrivals;
+import edu.cs4480.protocol.transport.TransportConfig;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -10,7 +25,7 @@ public class Project
 {
     public static void main(String[] argv)
     {
-        StudentNetworkSimulator simulator;
+        NetworkSimulator simulator;
         
         int nsim = -1;
         double loss = -1.0;
@@ -18,6 +33,22 @@ public class Project
         double delay = -1.0;
         int trace = -1;
         long seed = -1;
+        Protocol protocol = null;
+        TransportConfig.Rto rto = null;
+        TransportConfig.Congestion congestion = null;
+        TransportConfig.Ack ack = null;
+        TransportConfig.Overflow overflow = null;
+        double bandwidth = -1.0;
+        double propagation = -1.0;
+        int queue = -1;
+        LinkConfig linkConfig = null;
+        Topology topology = null;
+        LossModel lossModel = null;
+        CorruptionModel corruptionModel = null;
+        ArrivalProcess arrivals = null;
+        MessageSize messageSize = null;
+        TraceWriter traceWriter = null;
+        boolean traceAsked = false;
         String buffer = "";
     
         BufferedReader stdIn = new BufferedReader(
@@ -149,6 +180,454 @@ public class Project
             }
         }            
 
+        while (protocol == null)
+        {
+            System.out.print("Enter protocol, gbn (Go-Back-N) or sr " +
+                             "(Selective Repeat): [gbn] ");
+            try
+            {
+                buffer = stdIn.readLine();
+            }
+            catch (IOException ioe)
+            {
+                System.out.println("IOError reading your input!");
+                System.exit(1);
+            }
+            
+            if (buffer.equals(""))
+            {
+                protocol = Protocol.GBN;
+            }
+            else
+            {            
+                try
+                {
+                    protocol = Protocol.parse(buffer);
+                }
+                catch (IllegalArgumentException iae)
+                {
+                    protocol = null;
+                }
+            }
+        }
+
+        while (rto == null)
+        {
+            System.out.print("Enter retransmission timeout, fixed or " +
+                             "adaptive (estimated from RTT): [fixed] ");
+            try
+            {
+                buffer = stdIn.readLine();
+            }
+            catch (IOException ioe)
+            {
+                System.out.println("IOError reading your input!");
+                System.exit(1);
+            }
+            
+            if (buffer.equals(""))
+            {
+                rto = TransportConfig.Rto.FIXED;
+            }
+            else
+            {            
+                try
+                {
+                    rto = TransportConfig.Rto.parse(buffer);
+                }
+                catch (IllegalArgumentException iae)
+                {
+                    rto = null;
+                }
+            }
+        }
+
+        while (congestion == null)
+        {
+            System.out.print("Enter congestion control, fixed (window of " +
+                             TransportConfig.DEFAULT_WINDOW_SIZE + ") or aimd " +
+                             "(slow start and AIMD): [fixed] ");
+            try
+            {
+                buffer = stdIn.readLine();
+            }
+            catch (IOException ioe)
+            {
+                System.out.println("IOError reading your input!");
+                System.exit(1);
+            }
+            
+            if (buffer.equals(""))
+            {
+                congestion = TransportConfig.Congestion.FIXED;
+            }
+            else
+            {            
+                try
+                {
+                    congestion = TransportConfig.Congestion.parse(buffer);
+                }
+                catch (IllegalArgumentException iae)
+                {
+                    congestion = null;
+                }
+            }
+        }
+
+        while (ack == null)
+        {
+            System.out.print("Enter Go-Back-N receiver ACKs, immediate, " +
+                             "cumulative, delayed or sack: [immediate] ");
+            try
+            {
+                buffer = stdIn.readLine();
+            }
+            catch (IOException ioe)
+            {
+                System.out.println("IOError reading your input!");
+                System.exit(1);
+            }
+            
+            if (buffer.equals(""))
+            {
+                ack = TransportConfig.Ack.IMMEDIATE;
+            }
+            else
+            {            
+                try
+                {
+                    ack = TransportConfig.Ack.parse(buffer);
+                }
+                catch (IllegalArgumentException iae)
+                {
+                    ack = null;
+                }
+            }
+        }
+
+        while (overflow == null)
+        {
+            System.out.print("Enter what to do when the sender's buffer of " +
+                             TransportConfig.DEFAULT_BUFFER_CAPACITY + " messages " +
+                             "is full, drop-tail, drop-head or block: [drop-tail] ");
+            try
+            {
+                buffer = stdIn.readLine();
+            }
+            catch (IOException ioe)
+            {
+                System.out.println("IOError reading your input!");
+                System.exit(1);
+            }
+            
+            if (buffer.equals(""))
+            {
+                overflow = TransportConfig.Overflow.DROP_TAIL;
+            }
+            else
+            {            
+                try
+                {
+                    overflow = TransportConfig.Overflow.parse(buffer);
+                }
+                catch (IllegalArgumentException iae)
+                {
+                    overflow = null;
+                }
+            }
+        }
+
+        while (bandwidth < 0.0)
+        {
+            System.out.print("Enter link bandwidth in bytes per time unit, " +
+                             "0 for the original channel, or a topology " +
+                             "file: [0] ");
+            try
+            {
+                buffer = stdIn.readLine();
+            }
+            catch (IOException ioe)
+            {
+                System.out.println("IOError reading your input!");
+                System.exit(1);
+            }
+            
+            if (buffer.equals(""))
+            {
+                bandwidth = 0.0;
+            }
+            else
+            {            
+                try
+                {
+                    bandwidth = (Double.valueOf(buffer)).doubleValue();
+                }
+                catch (NumberFormatException nfe)
+                {
+                    try
+                    {
+                        topology = Topology.load(buffer);
+                        bandwidth = 0.0;
+                    }
+                    catch (IOException ioe)
+                    {
+                        System.out.println("Cannot read " + buffer);
+                    }
+                    catch (IllegalArgumentException badTopology)
+                    {
+                        System.out.println(badTopology.getMessage());
+                    }
+                }
+            }
+        }
+
+        if (bandwidth > 0.0)
+        {
+            linkConfig = new LinkConfig().setBandwidth(bandwidth);
+            
+            while (propagation < 0.0)
+            {
+                System.out.print("Enter link propagation delay (>= 0.0): [" +
+                                 LinkConfig.DEFAULT_PROPAGATION_DELAY + "] ");
+                try
+                {
+                    buffer = stdIn.readLine();
+                }
+                catch (IOException ioe)
+                {
+                    System.out.println("IOError reading your input!");
+                    System.exit(1);
+                }
+                
+                if (buffer.equals(""))
+                {
+                    propagation = LinkConfig.DEFAULT_PROPAGATION_DELAY;
+                }
+                else
+                {            
+                    try
+                    {
+                        propagation = (Double.valueOf(buffer)).doubleValue();
+                    }
+                    catch (NumberFormatException nfe)
+                    {
+                        propagation = -1.0;
+                    }
+                }
+            }
+            
+            while (queue < 1)
+            {
+                System.out.print("Enter link queue capacity in packets " +
+                                 "(> 0): [" +
+                                 LinkConfig.DEFAULT_QUEUE_CAPACITY + "] ");
+                try
+                {
+                    buffer = stdIn.readLine();
+                }
+                catch (IOException ioe)
+                {
+                    System.out.println("IOError reading your input!");
+                    System.exit(1);
+                }
+                
+                if (buffer.equals(""))
+                {
+                    queue = LinkConfig.DEFAULT_QUEUE_CAPACITY;
+                }
+                else
+                {            
+                    try
+                    {
+                        queue = Integer.parseInt(buffer);
+                    }
+                    catch (NumberFormatException nfe)
+                    {
+                        queue = -1;
+                    }
+                }
+            }
+            
+            linkConfig.setPropagationDelay(propagation)
+                      .setQueueCapacity(queue);
+        }
+
+        while (lossModel == null)
+        {
+            System.out.print("Enter mean loss burst length (1 for " +
+                             "independent losses), or a loss trace file: " +
+                             "[1] ");
+            try
+            {
+                buffer = stdIn.readLine();
+            }
+            catch (IOException ioe)
+            {
+                System.out.println("IOError reading your input!");
+                System.exit(1);
+            }
+            
+            if (buffer.equals(""))
+            {
+                lossModel = new BernoulliLoss(Math.min(loss, 1.0));
+            }
+            else
+            {            
+                try
+                {
+                    double burst = (Double.valueOf(buffer)).doubleValue();
+                    if (burst > 1.0)
+                    {
+                        lossModel = GilbertElliottLoss.withBurst(loss, burst);
+                    }
+                    else if (burst == 1.0)
+                    {
+                        lossModel = new BernoulliLoss(Math.min(loss, 1.0));
+                    }
+                }
+                catch (NumberFormatException nfe)
+                {
+                    try
+                    {
+                        lossModel = TraceLoss.load(buffer);
+                    }
+                    catch (IOException ioe)
+                    {
+                        System.out.println("Cannot read " + buffer);
+                    }
+                    catch (IllegalArgumentException iae)
+                    {
+                        System.out.println(iae.getMessage());
+                    }
+                }
+                catch (IllegalArgumentException iae)
+                {
+                    lossModel = null;
+                }
+            }
+        }
+
+        while (corruptionModel == null)
+        {
+            System.out.print("Enter bit error rate (0.0 to corrupt whole " +
+                             "packets with the corruption probability): " +
+                             "[0.0] ");
+            try
+            {
+                buffer = stdIn.readLine();
+            }
+            catch (IOException ioe)
+            {
+                System.out.println("IOError reading your input!");
+                System.exit(1);
+            }
+            
+            if (buffer.equals(""))
+            {
+                corruptionModel = new FieldCorruption(Math.min(corrupt, 1.0));
+            }
+            else
+            {            
+                try
+                {
+                    double ber = (Double.valueOf(buffer)).doubleValue();
+                    if (ber > 0.0)
+                    {
+                        corruptionModel = new BitErrorCorruption(ber);
+                    }
+                    else if (ber == 0.0)
+                    {
+                        corruptionModel =
+                            new FieldCorruption(Math.min(corrupt, 1.0));
+                    }
+                }
+                catch (IllegalArgumentException iae)
+                {
+                    corruptionModel = null;
+                }
+            }
+        }
+
+        while (arrivals == null)
+        {
+            System.out.print("Enter message arrivals, uniform, poisson, " +
+                             "onoff or bulk, or an arrival trace file: " +
+                             "[uniform] ");
+            try
+            {
+                buffer = stdIn.readLine();
+            }
+            catch (IOException ioe)
+            {
+                System.out.println("IOError reading your input!");
+                System.exit(1);
+            }
+            
+            if (buffer.equals(""))
+            {
+                arrivals = Arrivals.UNIFORM.create(delay);
+            }
+            else
+            {
+                try
+                {
+                    arrivals = Arrivals.parse(buffer).create(delay);
+                }
+                catch (IllegalArgumentException iae)
+                {
+                    try
+                    {
+                        arrivals = TraceArrivals.load(buffer);
+                    }
+                    catch (IOException ioe)
+                    {
+                        System.out.println("Cannot read " + buffer);
+                    }
+                    catch (IllegalArgumentException badTrace)
+                    {
+                        System.out.println(badTrace.getMessage());
+                    }
+                }
+            }
+        }
+
+        while (messageSize == null)
+        {
+            System.out.print("Enter message size, n or min-max (1 to " +
+                             NetworkSimulator.MAX_DATA_SIZE + "): [" +
+                             NetworkSimulator.MAX_DATA_SIZE + "] ");
+            try
+            {
+                buffer = stdIn.readLine();
+            }
+            catch (IOException ioe)
+            {
+                System.out.println("IOError reading your input!");
+                System.exit(1);
+            }
+            
+            if (buffer.equals(""))
+            {
+                messageSize = new MessageSize(NetworkSimulator.MAX_DATA_SIZE,
+                                              NetworkSimulator.MAX_DATA_SIZE);
+            }
+            else
+            {
+                try
+                {
+                    messageSize = MessageSize.parse(buffer);
+                    if (messageSize.getMax() > NetworkSimulator.MAX_DATA_SIZE)
+                    {
+                        messageSize = null;
+                    }
+                }
+                catch (IllegalArgumentException iae)
+                {
+                    messageSize = null;
+                }
+            }
+        }
+
         while (trace < 0)
         {
             System.out.print("Enter trace level (>= 0): [0] ");
@@ -179,6 +658,37 @@ public class Project
             }
         }
 
+        while (!traceAsked)
+        {
+            System.out.print("Enter binary trace file: [none] ");
+            try
+            {
+                buffer = stdIn.readLine();
+            }
+            catch (IOException ioe)
+            {
+                System.out.println("IOError reading your input!");
+                System.exit(1);
+            }
+            
+            if (buffer.equals(""))
+            {
+                traceAsked = true;
+            }
+            else
+            {
+                try
+                {
+                    traceWriter = new TraceWriter(buffer);
+                    traceAsked = true;
+                }
+                catch (IOException ioe)
+                {
+                    System.out.println("Cannot write " + buffer);
+                }
+            }
+        }
+
         while (seed < 1)
         {
             System.out.print("Enter random seed: [random] ");
@@ -208,10 +718,39 @@ public class Project
                 }
             }
         }
-        NetStats stats = NetStats.getInstance();
-        simulator = new StudentNetworkSimulator(nsim, loss, corrupt, delay,
-                                                trace, seed);
+        simulator = protocol.create(nsim, loss, corrupt, delay, trace, seed,
+                                    new TransportConfig().setRto(rto)
+                                        .setCongestion(congestion)
+                                        .setAck(ack)
+                                        .setOverflow(overflow));
+        simulator.setLinkConfig(linkConfig);
+        simulator.setTopology(topology);
+        simulator.setLossModel(lossModel);
+        simulator.setCorruptionModel(corruptionModel);
+        simulator.setArrivalProcess(arrivals);
+        simulator.setMessageSize(messageSize);
+        simulator.setTraceWriter(traceWriter);
         simulator.runSimulator();
-		System.out.println(stats.getStats());
+        if (traceWriter != null)
+        {
+            try
+            {
+                traceWriter.close();
+            }
+            catch (IOException ioe)
+            {
+                System.out.println("Cannot finish the trace file");
+            }
+            System.out.println(traceWriter.getRecordCount() +
+                               " trace records written");
+        }
+        System.out.println(simulator.getNetStats().getStats());
+        if (simulator.getLinkStats() != null)
+        {
+            for (LinkStats link : simulator.getLinkStats())
+            {
+                System.out.print(link.getStats());
+            }
+        }
     }
 }
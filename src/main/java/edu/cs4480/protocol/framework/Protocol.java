@@ -0,0 +1,45 @@
+package edu.cs4480.protocol.framework;
+
+import edu.cs4480.protocol.transport.TransportConfig;
+
+import java.util.Locale;
+
+/**
+ * The reliable transfer protocols that can be simulated.
+ */
+public enum Protocol {
+	GBN {
+		public NetworkSimulator create(int numMessages, double loss, double corrupt, double avgDelay, int trace,
+									   long seed, TransportConfig config) {
+			StudentNetworkSimulator simulator =
+					new StudentNetworkSimulator(numMessages, loss, corrupt, avgDelay, trace, seed);
+			simulator.setTransportConfig(config);
+			return simulator;
+		}
+	},
+	SR {
+		public NetworkSimulator create(int numMessages, double loss, double corrupt, double avgDelay, int trace,
+									   long seed, TransportConfig config) {
+			SelectiveRepeatNetworkSimulator simulator =
+					new SelectiveRepeatNetworkSimulator(numMessages, loss, corrupt, avgDelay, trace, seed);
+			simulator.setTransportConfig(config);
+			return simulator;
+		}
+	};
+
+	/**
+	 * Creates a simulator running this protocol.
+	 */
+	public abstract NetworkSimulator create(int numMessages, double loss, double corrupt, double avgDelay,
+											int trace, long seed, TransportConfig config);
+
+	/**
+	 * Looks a protocol up by name, ignoring case.
+	 * @param name "gbn" or "sr"
+	 * @return the protocol
+	 * @throws IllegalArgumentException if there is no such protocol
+	 */
+	public static Protocol parse(String name) {
+		return valueOf(name.trim().toUpperCase(Locale.ROOT));
+	}
+}
@@ -0,0 +1,260 @@
+package edu.cs4480.protocol.framework;
+
+import edu.cs4480.protocol.stats.NetStats;
+import edu.cs4480.protocol.transport.CongestionControl;
+import edu.cs4480.protocol.transport.RtoPolicy;
+import edu.cs4480.protocol.transport.SendBuffer;
+import edu.cs4480.protocol.transport.TransportConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Selective Repeat counterpart of the Go-Back-N StudentNetworkSimulator. Every packet in the
+ * window has its own numbered timer, so a timeout resends only that packet. B acknowledges
+ * each packet it receives and buffers out-of-order packets until the gap before them is filled.
+ * Packets, checksums, RTO policies and stats are the same as in the Go-Back-N version, so the two
+ * can be compared on the same seeds.
+ */
+public class SelectiveRepeatNetworkSimulator extends NetworkSimulator {
+	private static final Logger logger = LoggerFactory.getLogger(SelectiveRepeatNetworkSimulator.class.getName());
+	private TransportConfig config = new TransportConfig();
+
+	private NetStats stats;
+	private RtoPolicy aRto;
+	private CongestionControl aCongestion;
+	private int aWindowSize;
+	private int aBase;
+	private int aNextSeqNum;
+	private SendBuffer<Message> messageBuffer;
+	// Per window slot, indexed by sequence number modulo the window size
+	private Packet[] aPackets;
+	private boolean[] aAcked;
+	private TimerHandle[] aTimers;
+	private double[] aSendTimes;
+	private int[] aRetransmits;
+
+	private NetStats bStats;
+	private int bWindowSize;
+	private int bBase;
+	// Payloads received ahead of bBase, by sequence number modulo the window size
+	private String[] bPayloads;
+
+	public SelectiveRepeatNetworkSimulator(int numMessages,
+										   double loss,
+										   double corrupt,
+										   double avgDelay,
+										   int trace,
+										   long seed) {
+		super(numMessages, loss, corrupt, avgDelay, trace, seed);
+	}
+
+	/**
+	 * Sets the sender and receiver window size used by the next run. Must be called before
+	 * runSimulator().
+	 * @param size the number of packets allowed in flight
+	 */
+	public void setWindowSize(int size) {
+		config.setWindowSize(size);
+	}
+
+	/**
+	 * Replaces the window size, RTO policy and other settings used by the next run. Must be called
+	 * before runSimulator().
+	 * @param newConfig the settings to copy
+	 */
+	public void setTransportConfig(TransportConfig newConfig) {
+		config = new TransportConfig(newConfig);
+	}
+
+	private int slot(int seq) {
+		return seq % aWindowSize;
+	}
+
+	private Packet createAck(int seq) {
+		return Checksums.packet(seq, 1, "");
+	}
+
+	/**
+	 * Packetizes and sends a message in the next free window slot.
+	 * @param msg the message to send
+	 * @param arrival the time the message came down from layer 5
+	 */
+	private void send(Message msg, double arrival) {
+		stats.transMsg();
+		stats.msgQueued(getTime() - arrival);
+		int seq = aNextSeqNum++;
+		int i = slot(seq);
+		aPackets[i] = Checksums.packet(seq, 0, msg.getData());
+		aAcked[i] = false;
+		aSendTimes[i] = getTime();
+		aRetransmits[i] = 0;
+		logger.debug("aOutput: transmitting packet: {}", aPackets[i]);
+		toLayer3(A, aPackets[i]);
+		stats.totalPkt();
+		aTimers[i] = startTimer(A, aRto.getTimeout(), seq);
+	}
+
+	private boolean windowHasRoom() {
+		return aNextSeqNum < aBase + aCongestion.getWindow();
+	}
+
+	/**
+	 * Slides the window past every acknowledged packet at its base, then fills the freed slots
+	 * from the message buffer and lets a blocked layer 5 continue once the buffer has room.
+	 * @param acked the number of packets just acknowledged, in or out of order
+	 */
+	private void slideWindow(int acked) {
+		while (aBase < aNextSeqNum && aAcked[slot(aBase)]) {
+			aPackets[slot(aBase)] = null;
+			aBase++;
+		}
+		aCongestion.onAck(acked, aBase - 1);
+		stats.cwndChanged(getTime(), aCongestion.getWindow());
+		while (windowHasRoom() && !messageBuffer.isEmpty()) {
+			double arrival = messageBuffer.peekTime();
+			send(messageBuffer.poll(), arrival);
+		}
+		if (!messageBuffer.isFull()) {
+			unblockLayer5();
+		}
+	}
+
+	protected void aOutput(Message message) {
+		// Messages already waiting go first, so the buffer stays in order
+		if (windowHasRoom() && messageBuffer.isEmpty()) {
+			send(message, getTime());
+			return;
+		}
+		if (messageBuffer.isFull()) {
+			if (config.getOverflow() == TransportConfig.Overflow.DROP_HEAD) {
+				dropMessage(messageBuffer.peekTime());
+				Message dropped = messageBuffer.poll();
+				logger.debug("aOutput: Message buffer is full. Dropping oldest message: {}", dropped.getData());
+			} else {
+				dropMessage(getTime());
+				logger.debug("aOutput: Dropping message. Message buffer is full. Message: {}", message.getData());
+				return;
+			}
+		}
+		messageBuffer.add(message, getTime());
+		// Stopping layer 5 as soon as the buffer fills means nothing has to be dropped, and a
+		// backlogged layer 5 would only fill it again
+		if ((config.getOverflow() == TransportConfig.Overflow.BLOCK || isLayer5Backlogged()) && messageBuffer.isFull()) {
+			blockLayer5();
+		}
+	}
+
+	protected void aInput(Packet packet) {
+		if (Checksums.isCorrupted(packet)) {
+			// The packet's own timer will resend it if the ACK was for something outstanding
+			logger.debug("aInput: Received corrupt ACK. Ignoring.");
+			stats.corruptPkt();
+			return;
+		}
+
+		int seq = packet.getSeqnum();
+		if (packet.getAcknum() != 1 || seq < aBase || seq >= aNextSeqNum) {
+			return;
+		}
+
+		int i = slot(seq);
+		if (!aAcked[i]) {
+			aAcked[i] = true;
+			aTimers[i].cancel();
+			aTimers[i] = null;
+			stats.msgAcked(aRetransmits[i]);
+			// Karn's rule: an ACK for a retransmitted packet could belong to any of its copies
+			if (aRetransmits[i] == 0) {
+				double rtt = getTime() - aSendTimes[i];
+				stats.rttSample(rtt);
+				aRto.sample(rtt);
+				stats.rtoChanged(getTime(), aRto.getTimeout());
+			}
+			slideWindow(1);
+		}
+	}
+
+	protected void aTimerInterrupt() {
+	}
+
+	/**
+	 * Resends the single packet whose timer expired.
+	 * @param entity the entity the timer belongs to
+	 * @param timerId the sequence number of the packet
+	 */
+	protected void timerInterrupt(int entity, int timerId) {
+		if (entity != A || timerId < aBase || timerId >= aNextSeqNum) {
+			return;
+		}
+
+		int i = slot(timerId);
+		stats.lostPkt();
+		stats.timeoutRecovery();
+		stats.retransmitPkt();
+		aRetransmits[i]++;
+		// Back off once per stalled window rather than once per expired packet, like a single timer would
+		if (timerId == aBase) {
+			aRto.backoff();
+			stats.rtoChanged(getTime(), aRto.getTimeout());
+			aCongestion.onTimeout(aNextSeqNum);
+		} else {
+			aCongestion.onLoss(aNextSeqNum);
+		}
+		stats.cwndChanged(getTime(), aCongestion.getWindow());
+		logger.debug("aTimer: Retransmitting packet: {}", aPackets[i]);
+		toLayer3(A, aPackets[i]);
+		stats.totalPkt();
+		aTimers[i] = startTimer(A, aRto.getTimeout(), timerId);
+	}
+
+	protected void aInit() {
+		stats = getNetStats(A);
+		aRto = config.newRtoPolicy();
+		stats.rtoChanged(getTime(), aRto.getTimeout());
+		aWindowSize = config.getWindowSize();
+		aCongestion = config.newCongestionControl();
+		stats.cwndChanged(getTime(), aCongestion.getWindow());
+		aBase = 1;
+		aNextSeqNum = 1;
+		messageBuffer = new SendBuffer<Message>(config.getBufferCapacity());
+		aPackets = new Packet[aWindowSize];
+		aAcked = new boolean[aWindowSize];
+		aTimers = new TimerHandle[aWindowSize];
+		aSendTimes = new double[aWindowSize];
+		aRetransmits = new int[aWindowSize];
+	}
+
+	protected void bInput(Packet packet) {
+		if (Checksums.isCorrupted(packet)) {
+			logger.debug("bInput: Corrupt packet. Dropping.");
+			bStats.corruptPkt();
+			return;
+		}
+
+		int seq = packet.getSeqnum();
+		if (seq >= bBase && seq < bBase + bWindowSize) {
+			toLayer3(B, createAck(seq));
+			bStats.totalPkt();
+			bPayloads[seq % bWindowSize] = packet.getPayload();
+
+			// Deliver everything that is now in order
+			while (bPayloads[bBase % bWindowSize] != null) {
+				String payload = bPayloads[bBase % bWindowSize];
+				bPayloads[bBase % bWindowSize] = null;
+				toLayer5(B, payload);
+				bBase++;
+			}
+		} else if (seq >= bBase - bWindowSize && seq < bBase) {
+			// Already delivered, but the ACK must have been lost
+			toLayer3(B, createAck(seq));
+			bStats.totalPkt();
+		}
+	}
+
+	protected void bInit() {
+		bBase = 1;
+		bStats = getNetStats(B);
+		bWindowSize = config.getWindowSize();
+		bPayloads = new String[bWindowSize];
+	}
+}
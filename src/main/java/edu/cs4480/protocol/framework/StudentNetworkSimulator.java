@@ -1,16 +1,15 @@
 package edu.cs4480.protocol.framework;
 
-import com.sun.swing.internal.plaf.basic.resources.basic_es;
 import edu.cs4480.protocol.stats.NetStats;
+import edu.cs4480.protocol.transport.CongestionControl;
+import edu.cs4480.protocol.transport.RtoPolicy;
+import edu.cs4480.protocol.transport.SackBlocks;
+import edu.cs4480.protocol.transport.SendBuffer;
+import edu.cs4480.protocol.transport.TransportConfig;
+import edu.cs4480.protocol.transport.WindowRing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayDeque;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
-
 public class StudentNetworkSimulator extends NetworkSimulator
 {
     /*
@@ -27,10 +26,17 @@ public class StudentNetworkSimulator extends NetworkSimulator
      *
      *  void stopTimer(int entity): 
      *       Stops the timer running at "entity" [A or B]
-     *  void startTimer(int entity, double increment): 
+     *  TimerHandle startTimer(int entity, double increment): 
      *       Starts a timer running at "entity" [A or B], which will expire in
      *       "increment" time units, causing the interrupt handler to be
-     *       called.  You should only call this with A.
+     *       called.  You should only call this with A.  The returned handle
+     *       can be passed to stopTimer(TimerHandle) or cancelled directly.
+     *  void stopTimer(TimerHandle handle): 
+     *       Stops the timer "handle" was issued for, if it is still running
+     *  TimerHandle startTimer(int entity, double increment, int timerId): 
+     *       Starts one of any number of timers at "entity".  When it expires,
+     *       timerInterrupt(entity, timerId) is called, which by default
+     *       calls aTimerInterrupt() for A.
      *  void toLayer3(int callingEntity, Packet p)
      *       Puts the packet "p" into the network from "callingEntity" [A or B]
      *  void toLayer5(int entity, String dataSent)
@@ -38,6 +44,12 @@ public class StudentNetworkSimulator extends NetworkSimulator
      *  double getTime()
      *       Returns the current time in the simulator.  Might be useful for
      *       debugging.
+     *  NetStats getNetStats()
+     *       Returns the statistics object for this simulation.
+     *  NetStats getNetStats(int entity)
+     *       Returns the statistics "entity" [A or B] records into while the
+     *       simulation runs.  They are added to getNetStats() at the end.
+     *       Flows added with addFlow() all record into the same ones.
      *  void printEventList()
      *       Prints the current event list to stdout.  Might be useful for
      *       debugging, but probably not.
@@ -88,6 +100,16 @@ public class StudentNetworkSimulator extends NetworkSimulator
      *          returns the checksum of the Packet
      *      int getPayload()
      *          returns the Packet's payload
+     *  BinaryPacket: A Packet stored as bytes that cannot be modified.  The
+     *    simulator passes it along without copying it.
+     *    Constructors:
+     *      BinaryPacket (int seq, int ack, int check, String newPayload)
+     *      BinaryPacket (int seq, int ack, int check, byte[] newPayload)
+     *      BinaryPacket (int seq, int ack, int check)
+     *    Methods:
+     *      the Packet getters; the setters always return false
+     *      int getPayloadLength()
+     *      byte getPayloadByte(int index)
      *
      */
 
@@ -96,16 +118,35 @@ public class StudentNetworkSimulator extends NetworkSimulator
     // state information for A or B.
     // Also add any necessary methods (e.g. checksum of a String)
 	private static final Logger logger = LoggerFactory.getLogger(StudentNetworkSimulator.class.getName());
+	private TransportConfig config = new TransportConfig();
 	private Packet aCurrentPacket;
 	private NetStats stats;
-	private double aCountdown;
+	private RtoPolicy aRto;
+	private CongestionControl aCongestion;
+	private TransportConfig.Ack aAckMode;
+	private TimerHandle aTimer;
+	// Duplicates of the last cumulative ACK received since it first arrived
+	private int aDupAcks;
 	private int bPreviousSequence;
 	private int aWindowSize;
-	private int aMessageBufferSize;
 	private int aBase;
 	private int aNextSeqNum;
-	private Queue<Message> messageBuffer;
-	private Queue<Packet> windowBuffer;
+	private SendBuffer<Message> messageBuffer;
+	private WindowRing<Packet> windowBuffer;
+	// Per window slot, indexed by sequence number. Used for RTT samples and stats.
+	private double[] aSendTimes;
+	private int[] aRetransmits;
+	// Packets B has reported in SACK blocks, by window slot
+	private boolean[] aSacked;
+
+	private NetStats bStats;
+	private TransportConfig.Ack bAckMode;
+	private int bWindowSize;
+	// In-order packets not yet acknowledged, and the timer that flushes their delayed ACK
+	private int bUnacked;
+	private TimerHandle bAckTimer;
+	// Payloads received ahead of bPreviousSequence + 1 when using SACK, by sequence number modulo the window size
+	private String[] bPayloads;
 
 	/**
 	 * Creates a Packet from the message.
@@ -116,7 +157,7 @@ public class StudentNetworkSimulator extends NetworkSimulator
 	private Packet toPacket(int seq, Message msg) {
 		int ack = 0;
 		int check = getChecksum(seq, ack, msg.getData());
-		return new Packet(seq, 0, ~check, msg.getData());
+		return new BinaryPacket(seq, 0, ~check, msg.getData());
 	}
 
 	/**
@@ -127,7 +168,7 @@ public class StudentNetworkSimulator extends NetworkSimulator
 	private Packet createAck(int seq){
 		int ack = 1;
 		int check = getChecksum(seq, ack, "");
-		return new Packet(seq, ack, ~check);
+		return new BinaryPacket(seq, ack, ~check);
 	}
 
 	/**
@@ -138,7 +179,37 @@ public class StudentNetworkSimulator extends NetworkSimulator
 		int seq = bPreviousSequence;
 		int ack = 1;
 		int check = getChecksum(seq, ack, "");
-		return new Packet(seq, ack, ~check);
+		return new BinaryPacket(seq, ack, ~check);
+	}
+
+	/**
+	 * Create a cumulative ACK for everything B has delivered, carrying SACK blocks for the
+	 * packets it holds beyond that when SACK is in use.
+	 * @return The newly created packet representing the ACK
+	 */
+	private Packet createCumulativeAck(){
+		if (bAckMode != TransportConfig.Ack.SACK){
+			return createAck(bPreviousSequence);
+		}
+		SackBlocks blocks = new SackBlocks();
+		int seq = bPreviousSequence + 2;
+		int end = bPreviousSequence + bWindowSize;
+		while (seq <= end && blocks.size() < SackBlocks.MAX_BLOCKS){
+			if (bPayloads[seq % bWindowSize] == null){
+				seq++;
+				continue;
+			}
+			int first = seq;
+			while (seq + 1 <= end && bPayloads[(seq + 1) % bWindowSize] != null){
+				seq++;
+			}
+			blocks.add(first, seq);
+			seq++;
+		}
+		String payload = blocks.encode();
+		int ack = 1;
+		int check = getChecksum(bPreviousSequence, ack, payload);
+		return new BinaryPacket(bPreviousSequence, ack, ~check, payload);
 	}
 
 	/**
@@ -148,14 +219,8 @@ public class StudentNetworkSimulator extends NetworkSimulator
 	 * @param data The payload
 	 * @return A calculated checksum. NOTE: The checksum is not inverted.
 	 */
-	private int getChecksum(int seq, int ack, String data) {
-		int sum = 0;
-		for (int i = 0; i < data.length(); i++) {
-			sum += Character.getNumericValue(data.charAt(i));
-		}
-		sum += seq;
-		sum += ack;
-		return sum;
+	int getChecksum(int seq, int ack, String data) {
+		return Checksums.sum(seq, ack, data);
 	}
 
 	/**
@@ -163,7 +228,7 @@ public class StudentNetworkSimulator extends NetworkSimulator
 	 * @param pkt The packet to check for corruption.
 	 * @return True if the packet is corrupted
 	 */
-	private boolean isCorrupted(Packet pkt){
+	boolean isCorrupted(Packet pkt){
 		int checksum = getChecksum(pkt.getSeqnum(), pkt.getAcknum(), pkt.getPayload());
 		logger.trace("packet checksum: {}, checksum: {}", pkt.getChecksum(), checksum);
 		int sum = pkt.getChecksum() + checksum;
@@ -192,66 +257,282 @@ public class StudentNetworkSimulator extends NetworkSimulator
 	 */
 	private void transmitPacket(int entity, Packet pkt, boolean startTimer){
 		toLayer3(entity, pkt);
-		stats.totalPkt();
+		getNetStats(entity).totalPkt();
 		if (startTimer){
-			startTimer(entity, aCountdown);
+			aTimer = startTimer(entity, aRto.getTimeout());
 		}
 	}
 
 	/**
 	 * Convenience method to initialize a message for transmission.
 	 * @param msg the message to send
+	 * @param arrival the time the message came down from layer 5
 	 * @return the packet ready for transmission
 	 */
-	private Packet initPacket(Message msg){
+	private Packet initPacket(Message msg, double arrival){
 		stats.transMsg();
+		stats.msgQueued(getTime() - arrival);
 		Packet pkt = toPacket(aNextSeqNum, msg);
+		aSendTimes[aNextSeqNum % aWindowSize] = getTime();
+		aRetransmits[aNextSeqNum % aWindowSize] = 0;
+		aSacked[aNextSeqNum % aWindowSize] = false;
 		aNextSeqNum++;
 		return pkt;
 	}
 
+	/**
+	 * Packetizes a message into the window and transmits it, starting the timer if the window was empty.
+	 * @param msg the message to send
+	 * @param arrival the time the message came down from layer 5
+	 */
+	private void sendMessage(Message msg, double arrival){
+		aCurrentPacket = initPacket(msg, arrival);
+		windowBuffer.add(aCurrentPacket);
+		logger.debug("aOutput: transmitting packet: {}", aCurrentPacket);
+		transmitPacket(0, aCurrentPacket, windowBuffer.size() == 1);
+	}
+
+	/**
+	 * Buffers a message the window has no room for, applying the configured overflow policy when
+	 * the buffer is full. Under BLOCK, or when layer 5 is backlogged and would only fill it again,
+	 * layer 5 is stopped as soon as the buffer fills, so no message has to be dropped.
+	 * @param msg the message to buffer
+	 */
+	private void bufferMessage(Message msg){
+		if (messageBuffer.isFull()){
+			if (config.getOverflow() == TransportConfig.Overflow.DROP_HEAD){
+				dropMessage(messageBuffer.peekTime());
+				Message dropped = messageBuffer.poll();
+				logger.debug("aOutput: Message buffer is full. Dropping oldest message: {}", dropped.getData());
+			} else {
+				dropMessage(getTime());
+				logger.debug("aOutput: Dropping message. Message buffer is full. Message: {}", msg.getData());
+				return;
+			}
+		}
+		messageBuffer.add(msg, getTime());
+		if ((config.getOverflow() == TransportConfig.Overflow.BLOCK || isLayer5Backlogged()) && messageBuffer.isFull()){
+			logger.debug("aOutput: Message buffer is full. Blocking layer 5.");
+			blockLayer5();
+		}
+	}
+
+	/**
+	 * Sends buffered messages for as long as the window has room, and lets a blocked layer 5
+	 * continue once the buffer has room again.
+	 */
+	private void drainMessageBuffer(){
+		while (windowHasRoom() && !messageBuffer.isEmpty()){
+			double arrival = messageBuffer.peekTime();
+			sendMessage(messageBuffer.poll(), arrival);
+		}
+		if (!messageBuffer.isFull()){
+			unblockLayer5();
+		}
+	}
+
 	/**
 	 * Determines whether room for a new packet exists in the window.
 	 * @return true if the window can accept a packet.
 	 */
 	private boolean windowHasRoom(){
-		return windowBuffer.size() < aWindowSize;
+		return windowBuffer.size() < aCongestion.getWindow();
 	}
 
 	/**
-	 * Retransmits all packets in the current window.
+	 * Retransmits all packets in the current window, except those B has reported in SACK blocks.
 	 */
 	private void retransmitWindow(){
-		for (Packet pkt : windowBuffer){
-			logger.debug("Retransmitting packet: {}", pkt.toString());
+		for (int seq = windowBuffer.getBase(); seq < windowBuffer.getNext(); seq++){
+			if (aSacked[seq % aWindowSize]){
+				continue;
+			}
+			Packet pkt = windowBuffer.get(seq);
+			logger.debug("Retransmitting packet: {}", pkt);
 			transmitPacket(0, pkt, false);
+			stats.retransmitPkt();
+			aRetransmits[seq % aWindowSize]++;
 		}
-		startTimer(0, aCountdown);
+		aTimer = startTimer(0, aRto.getTimeout());
 	}
 
 	/**
 	 * Move the transmission window according to the acknowledged packet.
 	 * @param pkt The packet to check for acknowledge and move window accordingly.
 	 */
-	private void moveWindow(Packet pkt){
+	void moveWindow(Packet pkt){
 		int seqNum = pkt.getSeqnum();
-		if (windowBuffer.peek().getSeqnum() > pkt.getSeqnum()){
+		if (seqNum < windowBuffer.getBase()){
 			return; //ack for an old packet
 		}
-		Packet head = windowBuffer.poll();
-		while (head != null && head.getSeqnum() != seqNum){
-			head = windowBuffer.poll();
+		int end = Math.min(seqNum + 1, windowBuffer.getNext());
+		for (int seq = windowBuffer.getBase(); seq < end; seq++){
+			stats.msgAcked(aRetransmits[seq % aWindowSize]);
+		}
+		if (windowBuffer.contains(seqNum)){
+			sampleRtt(seqNum);
+		}
+		int acked = windowBuffer.slideTo(end);
+		aBase = end;
+		aCongestion.onAck(acked, aBase - 1);
+		stats.cwndChanged(getTime(), aCongestion.getWindow());
+	}
+
+	/**
+	 * Feeds the round trip time of an acknowledged packet to the RTO policy. Retransmitted packets
+	 * are skipped (Karn's rule), since the ACK could belong to any of their transmissions.
+	 * @param seq the sequence number the ACK was for
+	 */
+	private void sampleRtt(int seq){
+		int slot = seq % aWindowSize;
+		if (aRetransmits[slot] == 0){
+			double rtt = getTime() - aSendTimes[slot];
+			stats.rttSample(rtt);
+			aRto.sample(rtt);
+			stats.rtoChanged(getTime(), aRto.getTimeout());
+		}
+	}
+
+	/**
+	 * Marks the packets listed in an ACK's SACK blocks, so they are not retransmitted.
+	 * @param pkt an intact ACK
+	 */
+	private void markSacked(Packet pkt){
+		SackBlocks blocks = SackBlocks.decode(pkt.getPayload());
+		for (int i = 0; i < blocks.size(); i++){
+			int first = Math.max(blocks.getFirst(i), aBase);
+			int last = Math.min(blocks.getLast(i), aNextSeqNum - 1);
+			for (int seq = first; seq <= last; seq++){
+				aSacked[seq % aWindowSize] = true;
+			}
+		}
+	}
+
+	/**
+	 * Restarts the retransmission timer if packets are outstanding, or stops it otherwise.
+	 */
+	private void restartTimer(){
+		if (aTimer != null){
+			aTimer.cancel();
+		}
+		aTimer = windowBuffer.isEmpty() ? null : startTimer(0, aRto.getTimeout());
+	}
+
+	/**
+	 * Handles an ACK from a cumulative, delayed or SACK receiver. Every intact packet B gets is
+	 * acknowledged, so a corrupt ACK can be ignored: the next one will say the same. The timer is
+	 * only restarted when new packets are acknowledged, so duplicates cannot hold off a timeout.
+	 * @param packet the (possibly corrupted) ACK
+	 */
+	private void cumulativeInput(Packet packet){
+		logger.debug("aInput packet: {}", packet);
+		if (isCorrupted(packet)){
+			logger.debug("aInput: Received corrupt ACK. Ignoring.");
+			stats.corruptPkt();
+			return;
+		}
+		if (aAckMode == TransportConfig.Ack.SACK){
+			markSacked(packet);
+		}
+		if (isAck(packet)){
+			logger.debug("aInput: Got ACK moving window.");
+			aDupAcks = 0;
+			moveWindow(packet);
+			restartTimer();
+			drainMessageBuffer();
+			logger.debug("aInput: Base: {}, NextSeqNum: {}", aBase, aNextSeqNum);
+		} else {
+			countDuplicate(packet);
 		}
-		aBase = (head == null) ? aNextSeqNum : head.getSeqnum() + 1;
 	}
 
-	private void handleTimer(){
-		if (windowBuffer.size() > 1){
-			stopTimer(0);
-			startTimer(0, aCountdown);
+	/**
+	 * Counts an intact ACK that acknowledges nothing new, and retransmits the window once
+	 * config.getDupAckThreshold() duplicates of the last cumulative ACK have arrived.
+	 * @param packet an intact ACK below the window
+	 */
+	private void countDuplicate(Packet packet){
+		if (packet.getSeqnum() != aBase - 1 || windowBuffer.isEmpty()){
+			return;
+		}
+		aDupAcks++;
+		if (aDupAcks == config.getDupAckThreshold()){
+			logger.debug("aInput: {} duplicate ACKs. Fast retransmit.", aDupAcks);
+			stats.fastRecovery();
+			aCongestion.onLoss(aNextSeqNum);
+			stats.cwndChanged(getTime(), aCongestion.getWindow());
+			if (aTimer != null){
+				aTimer.cancel();
+			}
+			retransmitWindow();
+		}
+	}
+
+	/**
+	 * Sends B's cumulative ACK now, flushing any delayed ACK.
+	 */
+	private void sendCumulativeAck(){
+		if (bAckTimer != null){
+			bAckTimer.cancel();
+			bAckTimer = null;
+		}
+		bUnacked = 0;
+		transmitPacket(1, createCumulativeAck(), false);
+	}
+
+	/**
+	 * Passes an in-order payload up to layer 5.
+	 * @param seq the sequence number of the packet
+	 * @param payload the packet's payload
+	 */
+	private void deliver(int seq, String payload){
+		logger.debug("bInput: New Message. Sending to layer 5. Message: {}", payload);
+		bPreviousSequence = seq;
+		toLayer5(1, payload);
+	}
+
+	/**
+	 * Receives a packet as a cumulative, delayed or SACK receiver. Corrupt packets are dropped
+	 * silently, since their sequence number cannot be trusted; everything else is acknowledged.
+	 * A delayed receiver holds the ACK for in-order packets, but acknowledges out-of-order
+	 * packets and duplicates at once so that A hears about gaps quickly.
+	 * @param packet the (possibly corrupted) packet from A
+	 */
+	private void cumulativeReceive(Packet packet){
+		logger.debug("bInput packet: {}", packet);
+		if (isCorrupted(packet)){
+			logger.debug("bInput: Corrupt Packet. Dropping.");
+			bStats.corruptPkt();
+			return;
+		}
+
+		int seq = packet.getSeqnum();
+		if (seq == bPreviousSequence + 1){
+			deliver(seq, packet.getPayload());
+			if (bAckMode == TransportConfig.Ack.SACK){
+				// The gap before any buffered packets may now be filled
+				int next = bPreviousSequence + 1;
+				while (bPayloads[next % bWindowSize] != null){
+					String payload = bPayloads[next % bWindowSize];
+					bPayloads[next % bWindowSize] = null;
+					deliver(next, payload);
+					next++;
+				}
+			}
+			if (bAckMode == TransportConfig.Ack.DELAYED && ++bUnacked < config.getAckEvery()){
+				if (bAckTimer == null){
+					bAckTimer = startTimer(1, config.getAckDelay());
+				}
+				return;
+			}
+		} else if (bAckMode == TransportConfig.Ack.SACK && seq > bPreviousSequence + 1
+				&& seq <= bPreviousSequence + bWindowSize){
+			logger.debug("bInput: Out of order packet {}. Buffering.", seq);
+			bPayloads[seq % bWindowSize] = packet.getPayload();
 		} else {
-			stopTimer(0);
+			logger.debug("bInput: Out of order packet. SeqNum= Expected: {}, Actual: {}", bPreviousSequence + 1, seq);
 		}
+		sendCumulativeAck();
 	}
 
 	// This is the constructor.  Don't touch!
@@ -265,24 +546,36 @@ public class StudentNetworkSimulator extends NetworkSimulator
         super(numMessages, loss, corrupt, avgDelay, trace, seed);
     }
 
+	/**
+	 * Sets the sender window size used by the next run. Must be called before runSimulator().
+	 * @param size the number of packets allowed in flight
+	 */
+	public void setWindowSize(int size){
+		config.setWindowSize(size);
+	}
+
+	/**
+	 * Replaces the window size, RTO policy and other settings used by the next run. Must be called
+	 * before runSimulator().
+	 * @param newConfig the settings to copy
+	 */
+	public void setTransportConfig(TransportConfig newConfig){
+		config = new TransportConfig(newConfig);
+	}
+
     // This routine will be called whenever the upper layer at the sender [A]
     // has a message to send.  It is the job of your protocol to insure that
     // the data in such a message is delivered in-order, and correctly, to
     // the receiving upper layer.
     protected void aOutput(Message message)
     {
-		if (windowHasRoom()){
-			logger.info("aOutput: received message: {}", message.getData());
-			aCurrentPacket = initPacket(message);
-			windowBuffer.add(aCurrentPacket);
-			logger.info("aOutput: transmitting packet: {}",aCurrentPacket.toString());
-			transmitPacket(0, aCurrentPacket, windowBuffer.size() == 1);
+		// Messages already waiting go first, so the buffer stays in order
+		if (windowHasRoom() && messageBuffer.isEmpty()){
+			logger.debug("aOutput: received message: {}", message.getData());
+			sendMessage(message, getTime());
 		} else {
-			logger.info("Window full. Buffering message");
-			if (!messageBuffer.offer(message)){
-				stats.dropMsg();
-				logger.info("aOutput: Dropping message. Message buffer is full. Message: {}", message.getData());
-			}
+			logger.debug("Window full. Buffering message");
+			bufferMessage(message);
 		}
     }
     
@@ -292,21 +585,26 @@ public class StudentNetworkSimulator extends NetworkSimulator
     // sent from the B-side.
     protected void aInput(Packet packet)
     {
-		handleTimer();
-		logger.debug("aInput packet: " + packet.toString());
+		if (aAckMode != TransportConfig.Ack.IMMEDIATE){
+			cumulativeInput(packet);
+			return;
+		}
+		logger.debug("aInput packet: {}", packet);
 		if (isCorrupted(packet)){
-			logger.info("aInput: Received corrupt packet. Retransmitting.");
+			// B answers every packet, so the next ACK will say what this one did
+			logger.debug("aInput: Received corrupt ACK. Ignoring.");
 			stats.corruptPkt();
-			retransmitWindow();
+		} else if (isAck(packet)){
+			logger.debug("aInput: Got ACK moving window.");
+			aDupAcks = 0;
+			moveWindow(packet);
+			// Only an ACK of new packets restarts the timer, so NACKs cannot hold off a timeout
+			restartTimer();
+			drainMessageBuffer();
+			logger.debug("aInput: Base: {}, NextSeqNum: {}", aBase, aNextSeqNum);
 		} else {
-			if (isAck(packet)){
-				logger.info("aInput: Got ACK moving window.");
-				moveWindow(packet);
-				logger.debug("aInput: Base: {}, NextSeqNum: {}", aBase, aNextSeqNum);
-			} else {
-				logger.info("aInput: Got Nack, retransmitting.");
-				retransmitWindow();
-			}
+			logger.debug("aInput: Got Nack.");
+			countDuplicate(packet);
 		}
     }
     
@@ -317,9 +615,27 @@ public class StudentNetworkSimulator extends NetworkSimulator
     protected void aTimerInterrupt()
     {
 		stats.lostPkt();
-		logger.info("aTimer: Lost packet. Retransmitting");
+		stats.timeoutRecovery();
+		logger.debug("aTimer: Lost packet. Retransmitting");
+		aDupAcks = 0;
+		aRto.backoff();
+		stats.rtoChanged(getTime(), aRto.getTimeout());
+		aCongestion.onTimeout(aNextSeqNum);
+		stats.cwndChanged(getTime(), aCongestion.getWindow());
 		retransmitWindow();
     }
+
+	/**
+	 * Sends the delayed ACK when B's ACK timer expires; A's timer goes to aTimerInterrupt().
+	 */
+	protected void timerInterrupt(int entity, int timerId){
+		if (entity == B){
+			bAckTimer = null;
+			sendCumulativeAck();
+		} else {
+			super.timerInterrupt(entity, timerId);
+		}
+	}
     
     // This routine will be called once, before any of your other A-side 
     // routines are called. It can be used to do any required
@@ -327,15 +643,24 @@ public class StudentNetworkSimulator extends NetworkSimulator
     // of entity A).
     protected void aInit()
     {
-		stats = NetStats.getInstance();
+		stats = getNetStats(A);
 		aCurrentPacket = null;
-		aCountdown = 500;
+		aRto = config.newRtoPolicy();
+		stats.rtoChanged(getTime(), aRto.getTimeout());
 		aNextSeqNum = 1;
 		aBase = 1;
-		aWindowSize = 8;
-		aMessageBufferSize = 50;
-		messageBuffer = new ArrayBlockingQueue<Message>(aMessageBufferSize);
-		windowBuffer = new ArrayBlockingQueue<Packet>(aWindowSize);
+		aWindowSize = config.getWindowSize();
+		aCongestion = config.newCongestionControl();
+		stats.cwndChanged(getTime(), aCongestion.getWindow());
+		messageBuffer = new SendBuffer<Message>(config.getBufferCapacity());
+		// The congestion window may grow and shrink anywhere up to aWindowSize
+		windowBuffer = new WindowRing<Packet>(aWindowSize, aNextSeqNum);
+		aSendTimes = new double[aWindowSize];
+		aRetransmits = new int[aWindowSize];
+		aSacked = new boolean[aWindowSize];
+		aAckMode = config.getAck();
+		aTimer = null;
+		aDupAcks = 0;
 	}
     
     // This routine will be called whenever a packet sent from the B-side 
@@ -344,25 +669,28 @@ public class StudentNetworkSimulator extends NetworkSimulator
     // sent from the A-side.
     protected void bInput(Packet packet)
     {
+		if (bAckMode != TransportConfig.Ack.IMMEDIATE){
+			cumulativeReceive(packet);
+			return;
+		}
 		// check corruption
-		logger.debug("bInput packet: {}", packet.toString());
+		logger.debug("bInput packet: {}", packet);
 		if (isCorrupted(packet)){
-			logger.info("bInput: Corrupt Packet. Sending Nack.");
-			stats.corruptPkt();
+			logger.debug("bInput: Corrupt Packet. Sending Nack.");
+			bStats.corruptPkt();
 			transmitPacket(1, createNack(), false);
 		} else {
 			if (bPreviousSequence == packet.getSeqnum() - 1){
-				logger.info("bInput: Packet ok. Sending ACK");
+				logger.debug("bInput: Packet ok. Sending ACK");
 				transmitPacket(1, createAck(packet.getSeqnum()), false);
-				logger.info("bInput: New Message. Sending to layer 5. Message: {}", packet.getPayload());
-				logger.debug(packet.toString());
+				logger.debug("bInput: New Message. Sending to layer 5. Message: {}", packet.getPayload());
+				logger.debug("{}", packet);
 				bPreviousSequence = packet.getSeqnum();
 				toLayer5(1, packet.getPayload());
-				stats.msgDelivered();
 			} else {
-				logger.info("bInput: Packet is not next in sequence. Sending ACK for old packet. Not resending to layer 5.");
+				logger.debug("bInput: Packet is not next in sequence. Sending ACK for old packet. Not resending to layer 5.");
 				logger.debug("bInput: Out of order packet. SeqNum= Expected: {}, Actual: {}", bPreviousSequence + 1, packet.getSeqnum());
-//				transmitPacket(1, createNack(), false);
+				transmitPacket(1, createNack(), false);
 			}
 		}
     }
@@ -375,5 +703,11 @@ public class StudentNetworkSimulator extends NetworkSimulator
     {
 		// init to the opposite to simulate ready to receive next packet
 		bPreviousSequence = 0;
+		bStats = getNetStats(B);
+		bAckMode = config.getAck();
+		bWindowSize = config.getWindowSize();
+		bUnacked = 0;
+		bAckTimer = null;
+		bPayloads = (bAckMode == TransportConfig.Ack.SACK) ? new String[bWindowSize] : null;
     }
 }
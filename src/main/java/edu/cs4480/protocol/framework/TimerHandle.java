@@ -0,0 +1,37 @@
+package edu.cs4480.protocol.framework;
+
+/*
+ * Returned by NetworkSimulator.startTimer().  Cancelling through the handle
+ * only stops the timer it was issued for; once that timer has fired or been
+ * stopped, cancel() does nothing.
+ */
+public abstract class TimerHandle
+{
+    // The id reported for the single per-entity timer
+    public static final int NO_TIMER_ID = -1;
+
+    public abstract boolean cancel();
+
+    public abstract boolean isActive();
+
+    // A or B, or for flow f of a simulator with added flows, the address
+    // of its endpoint: 2f + A or 2f + B
+    public abstract int getEntity();
+
+    public abstract int getTimerId();
+
+    public abstract double getExpiryTime();
+
+    // Told about every timer a handle's cancel() stops, so that the
+    // simulator can record it
+    interface CancelListener
+    {
+        void timerCancelled(TimerHandle timer);
+    }
+
+    public String toString()
+    {
+        return("entity: " + getEntity() + "  timer: " + getTimerId() +
+               "  expires: " + getExpiryTime() + "  active: " + isActive());
+    }
+}
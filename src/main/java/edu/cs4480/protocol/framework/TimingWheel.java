@@ -0,0 +1,336 @@
+package edu.cs4480.protocol.framework;
+
+/*
+ * A hierarchical timing wheel holding any number of timers per entity.
+ *
+ * Time is divided into ticks of a fixed size, and a timer expires at the
+ * first tick boundary at or after its requested time.  There are LEVELS
+ * wheels of SLOTS slots each; level n covers SLOTS^(n+1) ticks, and a
+ * timer sits in the lowest level that can hold it.  When a level's slot
+ * comes due, its timers are cascaded down to the level below, and timers
+ * in a due level 0 slot expire.  Timers further out than the top level
+ * reaches are parked in its last slot and re-placed when it cascades.
+ *
+ * Each slot is a doubly linked list, so schedule() and cancel() are O(1).
+ * advance() jumps straight from one non-empty slot to the next, so time
+ * passing with nothing due costs nothing.
+ */
+public class TimingWheel
+{
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long RANGE = 1L << (BITS * LEVELS);
+
+    // Tolerance when converting a time back to the tick it falls on
+    private static final double EPSILON = 1e-6;
+
+    private double tickSize;
+    private long currentTick;
+    private Node[][] wheels;
+    private Node expired;
+    private int count;
+    private TimerHandle.CancelListener listener;
+
+    public TimingWheel(double tick)
+    {
+        if (tick <= 0.0)
+        {
+            throw new IllegalArgumentException("tick size must be positive");
+        }
+
+        tickSize = tick;
+        currentTick = 0;
+        wheels = new Node[LEVELS][SLOTS];
+        for (int level = 0; level < LEVELS; level++)
+        {
+            for (int slot = 0; slot < SLOTS; slot++)
+            {
+                wheels[level][slot] = Node.list();
+            }
+        }
+        expired = Node.list();
+        count = 0;
+    }
+
+    // Tells "l" about every timer cancelled through its handle; null stops
+    // telling
+    void setCancelListener(TimerHandle.CancelListener l)
+    {
+        listener = l;
+    }
+
+    /*
+     * Schedules a timer for "entity" that expires at "expiry".  "now" is
+     * the current simulation time.
+     */
+    public TimerHandle schedule(int entity, int timerId, double now,
+                                double expiry)
+    {
+        if (count == 0)
+        {
+            // Nothing is waiting, so catch up without walking the ticks
+            currentTick = Math.max(currentTick, tickOf(now));
+        }
+
+        Node timer = new Node(this, entity, timerId, expiry,
+                              (long)Math.ceil(expiry / tickSize - EPSILON));
+        place(timer);
+        count++;
+        return timer;
+    }
+
+    /*
+     * Moves the wheel forward to "now", cascading and expiring timers as
+     * their slots come due.  Expired timers are then taken with
+     * pollExpired().
+     */
+    public void advance(double now)
+    {
+        long target = tickOf(now);
+
+        while (currentTick < target)
+        {
+            long next = nextTick();
+            if (next < 0 || next > target)
+            {
+                currentTick = target;
+                break;
+            }
+
+            currentTick = next;
+            processTick();
+        }
+    }
+
+    // Removes and returns the next expired timer, or null if there is none
+    public TimerHandle pollExpired()
+    {
+        Node timer = expired.next;
+        if (timer == expired)
+        {
+            return null;
+        }
+
+        timer.unlink();
+        count--;
+        return timer;
+    }
+
+    /*
+     * The time at which advance() next needs to be called, or
+     * Double.POSITIVE_INFINITY if no timers are pending.
+     */
+    public double nextWakeTime()
+    {
+        if (expired.next != expired)
+        {
+            return currentTick * tickSize;
+        }
+
+        long next = nextTick();
+        if (next < 0)
+        {
+            return Double.POSITIVE_INFINITY;
+        }
+        return next * tickSize;
+    }
+
+    public int size()
+    {
+        return count;
+    }
+
+    public double getTickSize()
+    {
+        return tickSize;
+    }
+
+    private long tickOf(double t)
+    {
+        return (long)Math.floor(t / tickSize + EPSILON);
+    }
+
+    private void place(Node timer)
+    {
+        long delta = timer.tick - currentTick;
+
+        if (delta <= 0)
+        {
+            timer.linkBefore(expired);
+            return;
+        }
+
+        // Park timers beyond the top level in its furthest slot
+        long tick = (delta >= RANGE) ? currentTick + RANGE - 1 : timer.tick;
+        delta = tick - currentTick;
+
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (BITS * (level + 1))))
+        {
+            level++;
+        }
+
+        int slot = (int)((tick >>> (BITS * level)) & MASK);
+        timer.linkBefore(wheels[level][slot]);
+    }
+
+    // Handles everything due at currentTick
+    private void processTick()
+    {
+        // Find how many levels wrapped around on this tick
+        int wrapped = 0;
+        while (wrapped < LEVELS - 1 &&
+               ((currentTick >>> (BITS * wrapped)) & MASK) == 0)
+        {
+            wrapped++;
+        }
+
+        for (int level = wrapped; level >= 1; level--)
+        {
+            cascade(wheels[level][(int)((currentTick >>> (BITS * level)) &
+                                        MASK)]);
+        }
+
+        Node slot = wheels[0][(int)(currentTick & MASK)];
+        while (slot.next != slot)
+        {
+            Node timer = slot.next;
+            timer.unlink();
+            timer.linkBefore(expired);
+        }
+    }
+
+    private void cascade(Node slot)
+    {
+        while (slot.next != slot)
+        {
+            Node timer = slot.next;
+            timer.unlink();
+            place(timer);
+        }
+    }
+
+    /*
+     * The first tick after currentTick at which a non-empty slot comes due,
+     * or -1 if the wheel is empty.
+     */
+    private long nextTick()
+    {
+        if (count == 0)
+        {
+            return -1;
+        }
+
+        long best = -1;
+        for (int level = 0; level < LEVELS; level++)
+        {
+            int shift = BITS * level;
+            long base = currentTick >>> shift;
+
+            for (int k = 1; k <= SLOTS; k++)
+            {
+                if (!wheels[level][(int)((base + k) & MASK)].isEmpty())
+                {
+                    long tick = (base + k) << shift;
+                    if (best < 0 || tick < best)
+                    {
+                        best = tick;
+                    }
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /*
+     * A scheduled timer.  Doubles as the list header of a slot, in which
+     * case it carries no timer.
+     */
+    private static class Node extends TimerHandle
+    {
+        private TimingWheel wheel;
+        private int entity;
+        private int timerId;
+        private double expiry;
+        private long tick;
+        private Node prev;
+        private Node next;
+
+        private Node(TimingWheel w, int ent, int id, double exp, long t)
+        {
+            wheel = w;
+            entity = ent;
+            timerId = id;
+            expiry = exp;
+            tick = t;
+        }
+
+        private static Node list()
+        {
+            Node header = new Node(null, -1, NO_TIMER_ID, 0.0, 0);
+            header.prev = header;
+            header.next = header;
+            return header;
+        }
+
+        private boolean isEmpty()
+        {
+            return next == this;
+        }
+
+        private void linkBefore(Node header)
+        {
+            prev = header.prev;
+            next = header;
+            header.prev.next = this;
+            header.prev = this;
+        }
+
+        private void unlink()
+        {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+
+        public boolean cancel()
+        {
+            if (prev == null)
+            {
+                return false;
+            }
+
+            unlink();
+            wheel.count--;
+            if (wheel.listener != null)
+            {
+                wheel.listener.timerCancelled(this);
+            }
+            return true;
+        }
+
+        public boolean isActive()
+        {
+            return prev != null;
+        }
+
+        public int getEntity()
+        {
+            return entity;
+        }
+
+        public int getTimerId()
+        {
+            return timerId;
+        }
+
+        public double getExpiryTime()
+        {
+            return expiry;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package edu.cs4480.protocol.framework;
+
+import edu.cs4480.protocol.stats.SocketStats;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * The sockets the UDP engine carries packets over: a DatagramChannel for
+ * the A endpoints of every flow and one for the B endpoints, bound to the
+ * loopback interface, connected to each other and polled through one
+ * Selector.  A datagram holds the address of the endpoint it is for,
+ * followed by the packet laid out as a BinaryPacket.
+ *
+ * Together with the loss and corruption the simulator applies before it
+ * sends a packet, this is the impairment shim: a packet the channel or
+ * link would have delayed is held here until that much real time has
+ * passed, and only then written to its socket.  Times are in simulated
+ * time units since the channel was opened, each "unit" seconds long.
+ */
+class UdpChannel
+{
+    // Room for the address, a header and the largest payload there is
+    private static final int MAX_DATAGRAM = 65507;
+    private static final int ADDRESS_SIZE = 4;
+    private static final int SOCKET_BUFFER = 4 * 1024 * 1024;
+    private static final long NANOS_PER_MILLI = 1000000L;
+    // How often to poll the sockets while waiting for less than select()
+    // can
+    private static final long POLL_NANOS = 20000L;
+
+    private final Selector selector;
+    private final DatagramChannel[] sockets;
+    private final ByteBuffer sendBuffer;
+    private final ByteBuffer receiveBuffer;
+    private final PriorityQueue<Datagram> delayed;
+    private final SocketStats stats;
+    private final long start;
+    private final double nanosPerUnit;
+    private long sequence;
+    private int nextSocket;
+    private int receivedAddress;
+
+    UdpChannel(double unit) throws IOException
+    {
+        nanosPerUnit = unit * 1e9;
+        selector = Selector.open();
+        sockets = new DatagramChannel[2];
+        try
+        {
+            InetAddress loopback = InetAddress.getLoopbackAddress();
+            for (int side = NetworkSimulator.A; side <= NetworkSimulator.B;
+                 side++)
+            {
+                DatagramChannel socket = DatagramChannel.open();
+                sockets[side] = socket;
+                socket.setOption(StandardSocketOptions.SO_RCVBUF,
+                                 SOCKET_BUFFER);
+                socket.setOption(StandardSocketOptions.SO_SNDBUF,
+                                 SOCKET_BUFFER);
+                socket.bind(new InetSocketAddress(loopback, 0));
+                socket.configureBlocking(false);
+                socket.register(selector, SelectionKey.OP_READ);
+            }
+            sockets[NetworkSimulator.A].connect(
+                sockets[NetworkSimulator.B].getLocalAddress());
+            sockets[NetworkSimulator.B].connect(
+                sockets[NetworkSimulator.A].getLocalAddress());
+        }
+        catch (IOException ioe)
+        {
+            close();
+            throw ioe;
+        }
+
+        sendBuffer = ByteBuffer.allocateDirect(MAX_DATAGRAM);
+        receiveBuffer = ByteBuffer.allocateDirect(MAX_DATAGRAM);
+        delayed = new PriorityQueue<Datagram>();
+        stats = new SocketStats();
+        start = System.nanoTime();
+    }
+
+    // The time since the channel was opened
+    double now()
+    {
+        return (System.nanoTime() - start) / nanosPerUnit;
+    }
+
+    /*
+     * Sends "p" to the endpoint at "address" once "time" has come, from
+     * the socket of the other side.  The bytes are copied, so the packet
+     * may change afterwards.
+     */
+    void send(int address, Packet p, double time) throws IOException
+    {
+        sendBuffer.clear();
+        sendBuffer.putInt(address);
+        if (p instanceof BinaryPacket)
+        {
+            ((BinaryPacket)p).writeTo(sendBuffer);
+        }
+        else
+        {
+            new BinaryPacket(p.getSeqnum(), p.getAcknum(), p.getChecksum(),
+                             p.getPayload()).writeTo(sendBuffer);
+        }
+        sendBuffer.flip();
+
+        if (time <= now() && delayed.isEmpty())
+        {
+            write(address, sendBuffer);
+            return;
+        }
+        byte[] bytes = new byte[sendBuffer.remaining()];
+        sendBuffer.get(bytes);
+        delayed.add(new Datagram(time, sequence++, address, bytes));
+    }
+
+    // Sends the held back datagrams whose time has come
+    void sendDue() throws IOException
+    {
+        double time = now();
+        while (!delayed.isEmpty() && delayed.peek().time <= time)
+        {
+            Datagram d = delayed.poll();
+            sendBuffer.clear();
+            sendBuffer.put(d.bytes);
+            sendBuffer.flip();
+            write(d.address, sendBuffer);
+        }
+    }
+
+    // When the next held back datagram is due, or infinity if none is
+    double nextSendTime()
+    {
+        return delayed.isEmpty() ? Double.POSITIVE_INFINITY :
+            delayed.peek().time;
+    }
+
+    private void write(int address, ByteBuffer datagram) throws IOException
+    {
+        int length = datagram.remaining();
+        int sender = 1 - address % 2;
+        if (sockets[sender].write(datagram) == 0)
+        {
+            stats.sendFailed();
+        }
+        else
+        {
+            stats.sent(length);
+        }
+    }
+
+    /*
+     * Reads a datagram that has arrived at either socket, taking turns
+     * between them, and returns its packet, or null if none has.  See
+     * getReceivedAddress() for whom it is for.
+     */
+    Packet receive() throws IOException
+    {
+        for (int i = 0; i < sockets.length; i++)
+        {
+            int side = (nextSocket + i) % sockets.length;
+            receiveBuffer.clear();
+            if (sockets[side].receive(receiveBuffer) == null)
+            {
+                continue;
+            }
+            nextSocket = (side + 1) % sockets.length;
+            receiveBuffer.flip();
+            if (receiveBuffer.remaining() < ADDRESS_SIZE)
+            {
+                continue;
+            }
+
+            // A datagram that is cut short or on the wrong socket is
+            // dropped, as a real network would
+            receivedAddress = receiveBuffer.getInt();
+            Packet p = BinaryPacket.read(receiveBuffer);
+            if (p == null || receivedAddress < 0 ||
+                receivedAddress % 2 != side)
+            {
+                continue;
+            }
+            stats.received();
+            return p;
+        }
+        return null;
+    }
+
+    // The address of the endpoint the last packet received is for
+    int getReceivedAddress()
+    {
+        return receivedAddress;
+    }
+
+    /*
+     * Waits until a datagram arrives, "time" comes or "timeout" seconds
+     * have passed, whichever is first.  Returns whether one arrived.
+     */
+    boolean await(double time, double timeout) throws IOException
+    {
+        double wait = Math.min((time - now()) * nanosPerUnit, timeout * 1e9);
+        int ready;
+        if (wait >= NANOS_PER_MILLI)
+        {
+            ready = selector.select((long)(wait / NANOS_PER_MILLI));
+        }
+        else
+        {
+            // Closer than select() can wait, so poll until then
+            ready = selector.selectNow();
+            long end = System.nanoTime() + (long)Math.max(wait, 0.0);
+            long remaining = end - System.nanoTime();
+            while (ready == 0 && remaining > 0)
+            {
+                LockSupport.parkNanos(Math.min(remaining, POLL_NANOS));
+                ready = selector.selectNow();
+                remaining = end - System.nanoTime();
+            }
+        }
+        selector.selectedKeys().clear();
+        return ready > 0;
+    }
+
+    SocketStats getStats()
+    {
+        return stats;
+    }
+
+    void close() throws IOException
+    {
+        for (DatagramChannel socket : sockets)
+        {
+            if (socket != null)
+            {
+                socket.close();
+            }
+        }
+        selector.close();
+    }
+
+    // A datagram held back until its time, in the order it was sent
+    private static class Datagram implements Comparable<Datagram>
+    {
+        final double time;
+        final long sequence;
+        final int address;
+        final byte[] bytes;
+
+        Datagram(double t, long seq, int addr, byte[] data)
+        {
+            time = t;
+            sequence = seq;
+            address = addr;
+            bytes = data;
+        }
+
+        public int compareTo(Datagram other)
+        {
+            if (time != other.time)
+            {
+                return (time < other.time) ? -1 : 1;
+            }
+            return (sequence < other.sequence) ? -1 :
+                (sequence == other.sequence) ? 0 : 1;
+        }
+    }
+}
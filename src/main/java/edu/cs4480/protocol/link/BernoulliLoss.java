@@ -0,0 +1,32 @@
+package edu.cs4480.protocol.link;
+
+import java.util.Random;
+
+/**
+ * Loses every packet independently with the same probability, as the original channel does.
+ */
+public class BernoulliLoss implements LossModel {
+	private final double probability;
+
+	/**
+	 * @param probability the chance that any one packet is lost
+	 */
+	public BernoulliLoss(double probability) {
+		if (probability < 0 || probability > 1) {
+			throw new IllegalArgumentException("Loss probability must be between 0 and 1.");
+		}
+		this.probability = probability;
+	}
+
+	public double getProbability() {
+		return probability;
+	}
+
+	public boolean isLost(Random rand) {
+		return rand.nextDouble() < probability;
+	}
+
+	public LossModel copy() {
+		return this;
+	}
+}
@@ -0,0 +1,73 @@
+package edu.cs4480.protocol.link;
+
+import edu.cs4480.protocol.framework.BinaryPacket;
+import edu.cs4480.protocol.framework.Packet;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Flips each bit of the serialized packet independently with a fixed bit error rate, so long
+ * packets are corrupted more often than short ones. The length field is left alone, as a link
+ * layer would frame packets itself; the seqnum, acknum, checksum and payload are all exposed.
+ * Errors are placed by drawing the gap to the next one, so error-free packets cost one draw.
+ */
+public class BitErrorCorruption implements CorruptionModel {
+	private final double bitErrorRate;
+	private final double logNoError;
+
+	/**
+	 * @param bitErrorRate the chance that any one bit is flipped, below 1
+	 */
+	public BitErrorCorruption(double bitErrorRate) {
+		if (bitErrorRate < 0 || bitErrorRate >= 1) {
+			throw new IllegalArgumentException("Bit error rate must be at least 0 and below 1.");
+		}
+		this.bitErrorRate = bitErrorRate;
+		logNoError = Math.log(1.0 - bitErrorRate);
+	}
+
+	public double getBitErrorRate() {
+		return bitErrorRate;
+	}
+
+	public Packet corrupt(Packet packet, Random rand) {
+		if (bitErrorRate == 0) {
+			return null;
+		}
+		int bits = packet.getSize() * 8;
+		long bit = nextGap(rand);
+		if (bit >= bits) {
+			return null;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(packet.getSize());
+		toBinary(packet).writeTo(buffer);
+		byte[] bytes = buffer.array();
+		int length = buffer.getInt(BinaryPacket.LENGTH_OFFSET);
+		while (bit < bits) {
+			bytes[(int)(bit >>> 3)] ^= (byte)(0x80 >>> (bit & 7));
+			bit += 1 + nextGap(rand);
+		}
+		buffer.putInt(BinaryPacket.LENGTH_OFFSET, length);
+		buffer.position(0);
+		return BinaryPacket.read(buffer);
+	}
+
+	public CorruptionModel copy() {
+		return this;
+	}
+
+	// The number of intact bits before the next error, geometrically distributed
+	private long nextGap(Random rand) {
+		double u = 1.0 - rand.nextDouble();
+		return (long)Math.min(Long.MAX_VALUE / 2, Math.floor(Math.log(u) / logNoError));
+	}
+
+	private static BinaryPacket toBinary(Packet packet) {
+		if (packet instanceof BinaryPacket) {
+			return (BinaryPacket)packet;
+		}
+		return new BinaryPacket(packet.getSeqnum(), packet.getAcknum(), packet.getChecksum(), packet.getPayload());
+	}
+}
@@ -0,0 +1,24 @@
+package edu.cs4480.protocol.link;
+
+import edu.cs4480.protocol.framework.Packet;
+
+import java.util.Random;
+
+/**
+ * Decides which packets the wire corrupts, and how. The simulator gives each direction its own
+ * copy of the model.
+ */
+public interface CorruptionModel {
+	/**
+	 * @param packet a packet that made it across the wire; a copy the sender no longer sees,
+	 *               unless it cannot be modified
+	 * @param rand the source of randomness for this packet
+	 * @return the corrupted packet, which may be the one passed in, or null if it arrives intact
+	 */
+	Packet corrupt(Packet packet, Random rand);
+
+	/**
+	 * @return a model with the same settings, in its initial state
+	 */
+	CorruptionModel copy();
+}
@@ -0,0 +1,46 @@
+package edu.cs4480.protocol.link;
+
+import edu.cs4480.protocol.framework.Packet;
+
+import java.util.Random;
+
+/**
+ * The original channel's corruption. A packet is corrupted with a fixed probability, and then
+ * three times out of four its payload is replaced by "?" and its last character; otherwise its
+ * seqnum or acknum is replaced by a random number.
+ */
+public class FieldCorruption implements CorruptionModel {
+	private final double probability;
+
+	/**
+	 * @param probability the chance that any one packet is corrupted
+	 */
+	public FieldCorruption(double probability) {
+		if (probability < 0 || probability > 1) {
+			throw new IllegalArgumentException("Corruption probability must be between 0 and 1.");
+		}
+		this.probability = probability;
+	}
+
+	public double getProbability() {
+		return probability;
+	}
+
+	public Packet corrupt(Packet packet, Random rand) {
+		if (rand.nextDouble() >= probability) {
+			return null;
+		}
+		double x = rand.nextDouble();
+		if (x < 0.75) {
+			return packet.corruptPayload();
+		} else if (x < 0.875) {
+			return packet.corruptSeqnum(Math.abs(rand.nextInt()));
+		} else {
+			return packet.corruptAcknum(Math.abs(rand.nextInt()));
+		}
+	}
+
+	public CorruptionModel copy() {
+		return this;
+	}
+}
@@ -0,0 +1,81 @@
+package edu.cs4480.protocol.link;
+
+import java.util.Random;
+
+/**
+ * The Gilbert-Elliott two-state channel. The channel is either good or bad, each with its own
+ * loss probability, and before every packet it moves from good to bad or back with fixed
+ * probabilities. Losses therefore come in bursts whose mean length is set by how long the bad
+ * state lasts. The channel starts in the good state.
+ */
+public class GilbertElliottLoss implements LossModel {
+	private final double goodToBad;
+	private final double badToGood;
+	private final double goodLoss;
+	private final double badLoss;
+	private boolean bad;
+
+	/**
+	 * @param goodToBad the chance of moving from the good to the bad state before a packet
+	 * @param badToGood the chance of moving from the bad to the good state before a packet
+	 * @param goodLoss the chance of losing a packet in the good state
+	 * @param badLoss the chance of losing a packet in the bad state
+	 */
+	public GilbertElliottLoss(double goodToBad, double badToGood, double goodLoss, double badLoss) {
+		checkProbability(goodToBad);
+		checkProbability(goodLoss);
+		checkProbability(badLoss);
+		if (badToGood <= 0 || badToGood > 1) {
+			throw new IllegalArgumentException("The bad state must be left with a probability in (0, 1].");
+		}
+		this.goodToBad = goodToBad;
+		this.badToGood = badToGood;
+		this.goodLoss = goodLoss;
+		this.badLoss = badLoss;
+	}
+
+	/**
+	 * Creates the simple Gilbert channel, which loses every packet in the bad state and none in the
+	 * good one, with the given long run loss rate and mean burst length.
+	 * @param lossRate the fraction of packets lost in the long run, below 1
+	 * @param meanBurst the mean number of packets lost in a row, at least 1
+	 * @return the model
+	 */
+	public static GilbertElliottLoss withBurst(double lossRate, double meanBurst) {
+		if (lossRate < 0 || lossRate >= 1) {
+			throw new IllegalArgumentException("Loss rate must be at least 0 and below 1.");
+		}
+		if (meanBurst < 1) {
+			throw new IllegalArgumentException("Mean burst length must be at least 1.");
+		}
+		// The bad state lasts meanBurst packets on average, and is occupied lossRate of the time
+		double badToGood = 1.0 / meanBurst;
+		double goodToBad = Math.min(1.0, badToGood * lossRate / (1.0 - lossRate));
+		return new GilbertElliottLoss(goodToBad, badToGood, 0.0, 1.0);
+	}
+
+	/**
+	 * @return the fraction of packets lost in the long run
+	 */
+	public double getLossRate() {
+		double badShare = goodToBad / (goodToBad + badToGood);
+		return badShare * badLoss + (1 - badShare) * goodLoss;
+	}
+
+	public boolean isLost(Random rand) {
+		if (rand.nextDouble() < (bad ? badToGood : goodToBad)) {
+			bad = !bad;
+		}
+		return rand.nextDouble() < (bad ? badLoss : goodLoss);
+	}
+
+	public LossModel copy() {
+		return new GilbertElliottLoss(goodToBad, badToGood, goodLoss, badLoss);
+	}
+
+	private static void checkProbability(double p) {
+		if (p < 0 || p > 1) {
+			throw new IllegalArgumentException("Probabilities must be between 0 and 1.");
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package edu.cs4480.protocol.link;
+
+import java.util.Random;
+
+/**
+ * One direction of a link: a FIFO queue in front of a transmitter of fixed bandwidth, followed by
+ * a wire with a propagation delay and jitter. The queue is tracked by the times its packets
+ * finish serializing, so a packet's queueing delay is known as soon as it is sent.
+ */
+public class Link {
+	/** Returned by {@link #send} for a packet the queue dropped */
+	public static final double DROPPED = -1.0;
+
+	private final LinkConfig config;
+	// Finish times of the packets still in the queue, oldest first, in a ring of queueCapacity
+	private final double[] finishTimes;
+	private int head;
+	private int size;
+	private double busyUntil;
+	private double averageQueue;
+	private double lastQueueDelay;
+
+	public Link(LinkConfig config) {
+		this.config = new LinkConfig(config);
+		finishTimes = new double[config.getQueueCapacity()];
+	}
+
+	/**
+	 * Offers a packet to the link.
+	 * @param now the current time
+	 * @param bytes the size of the packet on the wire
+	 * @param rand the source of jitter and RED drops
+	 * @return the time the packet reaches the other end, or DROPPED
+	 */
+	public double send(double now, int bytes, Random rand) {
+		while (size > 0 && finishTimes[head] <= now) {
+			head = (head + 1) % finishTimes.length;
+			size--;
+		}
+		if (shouldDrop(rand)) {
+			return DROPPED;
+		}
+
+		double start = Math.max(now, busyUntil);
+		busyUntil = start + config.serializationDelay(bytes);
+		finishTimes[(head + size) % finishTimes.length] = busyUntil;
+		size++;
+		lastQueueDelay = start - now;
+		return busyUntil + config.getPropagationDelay() + jitter(rand);
+	}
+
+	/**
+	 * @return the number of packets in the queue, including the one being sent, as of the last send
+	 */
+	public int getQueueLength() {
+		return size;
+	}
+
+	/**
+	 * @return how long the last packet accepted waited for the packets ahead of it
+	 */
+	public double getLastQueueDelay() {
+		return lastQueueDelay;
+	}
+
+	private boolean shouldDrop(Random rand) {
+		if (size == finishTimes.length) {
+			return true;
+		}
+		if (config.getDiscipline() != LinkConfig.Discipline.RED) {
+			return false;
+		}
+
+		// The average is only updated on arrivals, so it does not decay while the link is idle
+		averageQueue += config.getRedWeight() * (size - averageQueue);
+		if (averageQueue < config.getRedMinThreshold()) {
+			return false;
+		}
+		if (averageQueue >= config.getRedMaxThreshold()) {
+			return true;
+		}
+		double p = config.getRedMaxProbability() * (averageQueue - config.getRedMinThreshold()) /
+				(config.getRedMaxThreshold() - config.getRedMinThreshold());
+		return rand.nextDouble() < p;
+	}
+
+	private double jitter(Random rand) {
+		double amount = config.getJitter();
+		if (amount <= 0) {
+			return 0.0;
+		}
+		if (config.getJitterDistribution() == LinkConfig.Jitter.EXPONENTIAL) {
+			return -amount * Math.log(1.0 - rand.nextDouble());
+		}
+		return amount * rand.nextDouble();
+	}
+}
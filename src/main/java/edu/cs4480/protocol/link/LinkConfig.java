@@ -0,0 +1,200 @@
+package edu.cs4480.protocol.link;
+
+import java.util.Locale;
+
+/**
+ * Settings of the link between A and B, used in both directions. A packet waits in the link's
+ * FIFO queue until the packets ahead of it are sent, is serialized at the link's bandwidth, and
+ * arrives a propagation delay plus some jitter later. The defaults give the same 1 to 10 unit
+ * delay as the original channel, with no bandwidth limit.
+ */
+public class LinkConfig {
+	/** Bytes per simulated time unit; 0 means serialization takes no time */
+	public static final double DEFAULT_BANDWIDTH = 0.0;
+	public static final double DEFAULT_PROPAGATION_DELAY = 1.0;
+	public static final double DEFAULT_JITTER = 9.0;
+	public static final int DEFAULT_QUEUE_CAPACITY = 64;
+	// Floyd and Jacobson's suggested RED parameters
+	public static final double DEFAULT_RED_MIN_THRESHOLD = 5;
+	public static final double DEFAULT_RED_MAX_THRESHOLD = 15;
+	public static final double DEFAULT_RED_MAX_PROBABILITY = 0.1;
+	public static final double DEFAULT_RED_WEIGHT = 0.002;
+
+	/**
+	 * How the extra delay on top of the propagation delay is distributed.
+	 */
+	public enum Jitter {
+		/** Uniform between 0 and the jitter */
+		UNIFORM,
+		/** Exponential with the jitter as its mean */
+		EXPONENTIAL;
+
+		public static Jitter parse(String name) {
+			return valueOf(name.trim().toUpperCase(Locale.ROOT));
+		}
+	}
+
+	/**
+	 * Which packets the queue drops.
+	 */
+	public enum Discipline {
+		/** Only packets that arrive to a full queue */
+		TAIL_DROP,
+		/** Random early detection: also packets at random as the average queue length grows */
+		RED;
+
+		public static Discipline parse(String name) {
+			return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+		}
+	}
+
+	private double bandwidth = DEFAULT_BANDWIDTH;
+	private double propagationDelay = DEFAULT_PROPAGATION_DELAY;
+	private double jitter = DEFAULT_JITTER;
+	private Jitter jitterDistribution = Jitter.UNIFORM;
+	private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+	private Discipline discipline = Discipline.TAIL_DROP;
+	private double redMinThreshold = DEFAULT_RED_MIN_THRESHOLD;
+	private double redMaxThreshold = DEFAULT_RED_MAX_THRESHOLD;
+	private double redMaxProbability = DEFAULT_RED_MAX_PROBABILITY;
+	private double redWeight = DEFAULT_RED_WEIGHT;
+
+	public LinkConfig() {
+	}
+
+	public LinkConfig(LinkConfig other) {
+		this.bandwidth = other.bandwidth;
+		this.propagationDelay = other.propagationDelay;
+		this.jitter = other.jitter;
+		this.jitterDistribution = other.jitterDistribution;
+		this.queueCapacity = other.queueCapacity;
+		this.discipline = other.discipline;
+		this.redMinThreshold = other.redMinThreshold;
+		this.redMaxThreshold = other.redMaxThreshold;
+		this.redMaxProbability = other.redMaxProbability;
+		this.redWeight = other.redWeight;
+	}
+
+	public double getBandwidth() {
+		return bandwidth;
+	}
+
+	/**
+	 * @param bytesPerTime the link rate in bytes per simulated time unit, 0 for no limit
+	 */
+	public LinkConfig setBandwidth(double bytesPerTime) {
+		if (bytesPerTime < 0) {
+			throw new IllegalArgumentException("Bandwidth must not be negative.");
+		}
+		bandwidth = bytesPerTime;
+		return this;
+	}
+
+	public double getPropagationDelay() {
+		return propagationDelay;
+	}
+
+	public LinkConfig setPropagationDelay(double delay) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Propagation delay must not be negative.");
+		}
+		propagationDelay = delay;
+		return this;
+	}
+
+	public double getJitter() {
+		return jitter;
+	}
+
+	public Jitter getJitterDistribution() {
+		return jitterDistribution;
+	}
+
+	/**
+	 * @param amount the largest extra delay for UNIFORM, the mean for EXPONENTIAL; 0 for none
+	 * @param distribution how the extra delay is distributed
+	 */
+	public LinkConfig setJitter(double amount, Jitter distribution) {
+		if (amount < 0) {
+			throw new IllegalArgumentException("Jitter must not be negative.");
+		}
+		jitter = amount;
+		jitterDistribution = distribution;
+		return this;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * @param packets how many packets the link holds at most, including the one being sent
+	 */
+	public LinkConfig setQueueCapacity(int packets) {
+		if (packets < 1) {
+			throw new IllegalArgumentException("Queue capacity must be at least 1.");
+		}
+		queueCapacity = packets;
+		return this;
+	}
+
+	public Discipline getDiscipline() {
+		return discipline;
+	}
+
+	public LinkConfig setDiscipline(Discipline discipline) {
+		this.discipline = discipline;
+		return this;
+	}
+
+	public double getRedMinThreshold() {
+		return redMinThreshold;
+	}
+
+	public double getRedMaxThreshold() {
+		return redMaxThreshold;
+	}
+
+	public double getRedMaxProbability() {
+		return redMaxProbability;
+	}
+
+	public double getRedWeight() {
+		return redWeight;
+	}
+
+	/**
+	 * Sets the RED parameters. Below the min threshold of average queue length nothing is dropped
+	 * early; between the thresholds the drop probability rises linearly to maxProbability; above
+	 * the max threshold every arriving packet is dropped.
+	 * @param minThreshold the average queue length where early drops start
+	 * @param maxThreshold the average queue length where every packet is dropped
+	 * @param maxProbability the drop probability just below maxThreshold
+	 * @param weight the weight of each new sample in the average queue length
+	 */
+	public LinkConfig setRed(double minThreshold, double maxThreshold, double maxProbability, double weight) {
+		if (minThreshold < 0 || maxThreshold <= minThreshold) {
+			throw new IllegalArgumentException("RED thresholds must satisfy 0 <= min < max.");
+		}
+		if (maxProbability <= 0 || maxProbability > 1 || weight <= 0 || weight > 1) {
+			throw new IllegalArgumentException("RED probability and weight must be in (0, 1].");
+		}
+		redMinThreshold = minThreshold;
+		redMaxThreshold = maxThreshold;
+		redMaxProbability = maxProbability;
+		redWeight = weight;
+		return this;
+	}
+
+	/**
+	 * @return the time to put a packet of the given size on the wire
+	 */
+	public double serializationDelay(int bytes) {
+		return bandwidth > 0 ? bytes / bandwidth : 0.0;
+	}
+
+	public String toString() {
+		return "bandwidth=" + bandwidth + " propagation=" + propagationDelay + " jitter=" + jitter +
+				" " + jitterDistribution + " queue=" + queueCapacity + " " + discipline;
+	}
+}
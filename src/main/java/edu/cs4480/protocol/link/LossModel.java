@@ -0,0 +1,20 @@
+package edu.cs4480.protocol.link;
+
+import java.util.Random;
+
+/**
+ * Decides which packets the wire loses. A model may keep state between packets, e.g. to lose
+ * them in bursts, so the simulator gives each direction its own copy.
+ */
+public interface LossModel {
+	/**
+	 * @param rand the source of randomness for this decision
+	 * @return true if the next packet sent is lost
+	 */
+	boolean isLost(Random rand);
+
+	/**
+	 * @return a model with the same settings, in its initial state
+	 */
+	LossModel copy();
+}
@@ -0,0 +1,378 @@
+package edu.cs4480.protocol.link;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A network of nodes joined by one-way links, each with its own rate, delay and queue, and the
+ * static routes packets take through it. A and B of every flow sit at host nodes, and their
+ * packets are forwarded link by link along the routes. Routes that are not set explicitly follow
+ * the path with the fewest links.
+ */
+public class Topology {
+	private final List<String> nodes = new ArrayList<String>();
+	private final Map<String, Integer> nodeIds = new HashMap<String, Integer>();
+	private final List<LinkConfig> links = new ArrayList<LinkConfig>();
+	private final List<int[]> ends = new ArrayList<int[]>();
+	// Explicit routes as (node, destination, link)
+	private final List<int[]> routes = new ArrayList<int[]>();
+	private int aHost = -1;
+	private int bHost = -1;
+	// Hosts of flows placed apart from the default, by flow; -1 where not set
+	private int[] flowHosts = new int[0];
+
+	public Topology() {
+	}
+
+	public Topology(Topology other) {
+		for (String name : other.nodes) {
+			addNode(name);
+		}
+		for (int i = 0; i < other.links.size(); i++) {
+			addLink(other.getLinkFrom(i), other.getLinkTo(i), other.links.get(i));
+		}
+		for (int[] route : other.routes) {
+			routes.add(route.clone());
+		}
+		aHost = other.aHost;
+		bHost = other.bHost;
+		flowHosts = other.flowHosts.clone();
+	}
+
+	/**
+	 * A chain of links from A's host to B's, through hops - 1 routers, every link in both
+	 * directions with the same settings.
+	 * @param hops the number of links between A and B
+	 * @param config the settings of every link
+	 */
+	public static Topology chain(int hops, LinkConfig config) {
+		if (hops < 1) {
+			throw new IllegalArgumentException("At least one hop is required.");
+		}
+		Topology topology = new Topology();
+		int previous = topology.addNode("a");
+		for (int i = 1; i < hops; i++) {
+			int router = topology.addNode("r" + i);
+			topology.connect(previous, router, config);
+			previous = router;
+		}
+		int b = topology.addNode("b");
+		topology.connect(previous, b, config);
+		return topology.setHosts(0, b);
+	}
+
+	/**
+	 * Reads a topology file. Each line is one of
+	 * <pre>
+	 *   link from to bandwidth propagation [queue [jitter]]   both directions
+	 *   simplex from to bandwidth propagation [queue [jitter]]   from to only
+	 *   route node destination next   traffic at node for destination goes to next
+	 *   hosts a b   the nodes A and B sit at
+	 * </pre>
+	 * Nodes are named by their first use. Jitter is uniform and 0 unless given, and a bandwidth of
+	 * 0 means no limit. Everything from a # to the end of its line is ignored.
+	 * @param path the file to read
+	 * @return the topology
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if a line cannot be parsed or no hosts are given
+	 */
+	public static Topology load(String path) throws IOException {
+		Topology topology = new Topology();
+		BufferedReader in = new BufferedReader(new FileReader(path));
+		try {
+			String line;
+			int number = 0;
+			while ((line = in.readLine()) != null) {
+				number++;
+				int comment = line.indexOf('#');
+				if (comment >= 0) {
+					line = line.substring(0, comment);
+				}
+				String[] words = line.trim().split("\\s+");
+				if (words[0].isEmpty()) {
+					continue;
+				}
+				try {
+					topology.parseLine(words);
+				} catch (IllegalArgumentException iae) {
+					throw new IllegalArgumentException(path + ":" + number + ": " + iae.getMessage(), iae);
+				}
+			}
+		} finally {
+			in.close();
+		}
+		if (topology.aHost < 0) {
+			throw new IllegalArgumentException(path + ": no hosts line");
+		}
+		return topology;
+	}
+
+	private void parseLine(String[] words) {
+		String keyword = words[0];
+		if ((keyword.equals("link") || keyword.equals("simplex")) && words.length >= 5 && words.length <= 7) {
+			LinkConfig config = new LinkConfig()
+					.setBandwidth(Double.parseDouble(words[3]))
+					.setPropagationDelay(Double.parseDouble(words[4]))
+					.setJitter(words.length > 6 ? Double.parseDouble(words[6]) : 0.0, LinkConfig.Jitter.UNIFORM);
+			if (words.length > 5) {
+				config.setQueueCapacity(Integer.parseInt(words[5]));
+			}
+			int from = node(words[1]);
+			int to = node(words[2]);
+			if (keyword.equals("link")) {
+				connect(from, to, config);
+			} else {
+				addLink(from, to, config);
+			}
+		} else if (keyword.equals("route") && words.length == 4) {
+			int from = node(words[1]);
+			int next = node(words[3]);
+			int link = findLink(from, next);
+			if (link < 0) {
+				throw new IllegalArgumentException("no link from " + words[1] + " to " + words[3]);
+			}
+			setRoute(from, node(words[2]), link);
+		} else if (keyword.equals("hosts") && words.length == 3) {
+			setHosts(node(words[1]), node(words[2]));
+		} else {
+			throw new IllegalArgumentException("cannot parse '" + joined(words) + "'");
+		}
+	}
+
+	private int node(String name) {
+		Integer id = nodeIds.get(name);
+		return (id != null) ? id : addNode(name);
+	}
+
+	private static String joined(String[] words) {
+		StringBuilder sb = new StringBuilder();
+		for (String word : words) {
+			if (sb.length() > 0) {
+				sb.append(' ');
+			}
+			sb.append(word);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @param name a name for the node, unique in this topology
+	 * @return the new node's number
+	 */
+	public int addNode(String name) {
+		if (nodeIds.containsKey(name)) {
+			throw new IllegalArgumentException("There already is a node " + name + ".");
+		}
+		nodeIds.put(name, nodes.size());
+		nodes.add(name);
+		return nodes.size() - 1;
+	}
+
+	/**
+	 * Adds a link that carries packets from one node to another only.
+	 * @return the new link's number
+	 */
+	public int addLink(int from, int to, LinkConfig config) {
+		checkNode(from);
+		checkNode(to);
+		if (from == to) {
+			throw new IllegalArgumentException("A link must join two different nodes.");
+		}
+		links.add(new LinkConfig(config));
+		ends.add(new int[] {from, to});
+		return links.size() - 1;
+	}
+
+	/**
+	 * Adds a link in each direction between two nodes, with the same settings.
+	 * @return the number of the link from "a" to "b"; the one back is the next number
+	 */
+	public int connect(int a, int b, LinkConfig config) {
+		int link = addLink(a, b, config);
+		addLink(b, a, config);
+		return link;
+	}
+
+	/**
+	 * Makes packets at "node" for "destination" leave on "link", whatever the shortest path is.
+	 */
+	public Topology setRoute(int node, int destination, int link) {
+		checkNode(node);
+		checkNode(destination);
+		if (link < 0 || link >= links.size() || getLinkFrom(link) != node) {
+			throw new IllegalArgumentException("Link " + link + " does not leave node " + node + ".");
+		}
+		routes.add(new int[] {node, destination, link});
+		return this;
+	}
+
+	/**
+	 * Sets the nodes A and B of every flow sit at, unless placed apart.
+	 */
+	public Topology setHosts(int a, int b) {
+		checkNode(a);
+		checkNode(b);
+		aHost = a;
+		bHost = b;
+		return this;
+	}
+
+	/**
+	 * Sets the nodes A and B of one flow sit at.
+	 * @param flow the flow's number, 0 for the simulator's own
+	 */
+	public Topology setHosts(int flow, int a, int b) {
+		checkNode(a);
+		checkNode(b);
+		if (flow < 0) {
+			throw new IllegalArgumentException("Flow numbers start at 0.");
+		}
+		if (2 * flow + 1 >= flowHosts.length) {
+			int oldLength = flowHosts.length;
+			flowHosts = Arrays.copyOf(flowHosts, Math.max(2 * flow + 2, 2 * oldLength));
+			Arrays.fill(flowHosts, oldLength, flowHosts.length, -1);
+		}
+		flowHosts[2 * flow] = a;
+		flowHosts[2 * flow + 1] = b;
+		return this;
+	}
+
+	/**
+	 * @param flow the flow's number
+	 * @param side 0 for A, 1 for B
+	 * @return the node that end of the flow sits at
+	 * @throws IllegalStateException if no hosts were set
+	 */
+	public int getHost(int flow, int side) {
+		int index = 2 * flow + side;
+		if (index < flowHosts.length && flowHosts[index] >= 0) {
+			return flowHosts[index];
+		}
+		if (aHost < 0) {
+			throw new IllegalStateException("The topology has no hosts.");
+		}
+		return (side == 0) ? aHost : bHost;
+	}
+
+	public int getNodeCount() {
+		return nodes.size();
+	}
+
+	public String getNodeName(int node) {
+		return nodes.get(node);
+	}
+
+	public int getLinkCount() {
+		return links.size();
+	}
+
+	public LinkConfig getLinkConfig(int link) {
+		return new LinkConfig(links.get(link));
+	}
+
+	public int getLinkFrom(int link) {
+		return ends.get(link)[0];
+	}
+
+	public int getLinkTo(int link) {
+		return ends.get(link)[1];
+	}
+
+	/**
+	 * @return the link's name, e.g. "r1->b"
+	 */
+	public String getLinkName(int link) {
+		return getNodeName(getLinkFrom(link)) + "->" + getNodeName(getLinkTo(link));
+	}
+
+	/**
+	 * Builds the routing table: the explicit routes, and for everything else the first link of a
+	 * path with the fewest links, preferring lower numbered links.
+	 * @return table[node][destination], the link a packet at node for destination leaves on, or
+	 * -1 where the destination cannot be reached or is the node itself
+	 */
+	public int[][] buildRoutingTable() {
+		int n = nodes.size();
+		int[][] table = new int[n][n];
+		for (int[] row : table) {
+			Arrays.fill(row, -1);
+		}
+
+		// Search backwards from each destination, so the first link found into a node is the
+		// first hop of one of its shortest paths
+		List<List<Integer>> incoming = new ArrayList<List<Integer>>(n);
+		for (int i = 0; i < n; i++) {
+			incoming.add(new ArrayList<Integer>());
+		}
+		for (int link = 0; link < links.size(); link++) {
+			incoming.get(getLinkTo(link)).add(link);
+		}
+		int[] distance = new int[n];
+		ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+		for (int destination = 0; destination < n; destination++) {
+			Arrays.fill(distance, -1);
+			distance[destination] = 0;
+			queue.add(destination);
+			while (!queue.isEmpty()) {
+				int node = queue.poll();
+				for (int link : incoming.get(node)) {
+					int from = getLinkFrom(link);
+					if (distance[from] < 0) {
+						distance[from] = distance[node] + 1;
+						table[from][destination] = link;
+						queue.add(from);
+					}
+				}
+			}
+		}
+
+		for (int[] route : routes) {
+			table[route[0]][route[1]] = route[2];
+		}
+		return table;
+	}
+
+	/**
+	 * Follows the routes from one node to another.
+	 * @param table a table from buildRoutingTable()
+	 * @return the links of the path, in order; empty if the nodes are the same
+	 * @throws IllegalStateException if the routes do not lead there
+	 */
+	public int[] path(int[][] table, int from, int to) {
+		int[] path = new int[nodes.size()];
+		int length = 0;
+		int node = from;
+		while (node != to) {
+			int link = table[node][to];
+			if (link < 0 || length == path.length) {
+				throw new IllegalStateException("No route from " + getNodeName(from) + " to " + getNodeName(to) +
+						(link < 0 ? " at " + getNodeName(node) : ", the routes loop"));
+			}
+			path[length++] = link;
+			node = getLinkTo(link);
+		}
+		return Arrays.copyOf(path, length);
+	}
+
+	private int findLink(int from, int to) {
+		for (int link = 0; link < links.size(); link++) {
+			if (getLinkFrom(link) == from && getLinkTo(link) == to) {
+				return link;
+			}
+		}
+		return -1;
+	}
+
+	private void checkNode(int node) {
+		if (node < 0 || node >= nodes.size()) {
+			throw new IllegalArgumentException("There is no node " + node + ".");
+		}
+	}
+}
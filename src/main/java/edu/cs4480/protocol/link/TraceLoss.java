@@ -0,0 +1,77 @@
+package edu.cs4480.protocol.link;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Replays a recorded loss pattern, one entry per packet, starting over when it runs out. Traces
+ * are text files of 0s (delivered) and 1s (lost); whitespace is ignored, and so is everything
+ * from a # to the end of its line.
+ */
+public class TraceLoss implements LossModel {
+	private final BitSet lost;
+	private final int length;
+	private int next;
+
+	/**
+	 * @param lost which entries of the pattern are losses
+	 * @param length the number of entries in the pattern
+	 */
+	public TraceLoss(BitSet lost, int length) {
+		if (length < 1) {
+			throw new IllegalArgumentException("A loss trace needs at least one entry.");
+		}
+		this.lost = (BitSet)lost.clone();
+		this.length = length;
+	}
+
+	/**
+	 * Reads a loss trace file.
+	 * @param path the file to read
+	 * @return the model, positioned at the start of the trace
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if it holds anything but 0s and 1s, or nothing at all
+	 */
+	public static TraceLoss load(String path) throws IOException {
+		BitSet lost = new BitSet();
+		int length = 0;
+		BufferedReader in = new BufferedReader(new FileReader(path));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				for (int i = 0; i < line.length(); i++) {
+					char c = line.charAt(i);
+					if (c == '#') {
+						break;
+					} else if (c == '1') {
+						lost.set(length++);
+					} else if (c == '0') {
+						length++;
+					} else if (!Character.isWhitespace(c)) {
+						throw new IllegalArgumentException("Unexpected '" + c + "' in loss trace " + path);
+					}
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return new TraceLoss(lost, length);
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	public boolean isLost(Random rand) {
+		boolean result = lost.get(next);
+		next = (next + 1) % length;
+		return result;
+	}
+
+	public LossModel copy() {
+		return new TraceLoss(lost, length);
+	}
+}
@@ -0,0 +1,123 @@
+package edu.cs4480.protocol.stats;
+
+import java.util.Locale;
+
+/**
+ * What each flow of a simulation sent and delivered. Flows are numbered from 0 and their
+ * counters are kept in one array per counter, so a run with tens of thousands of flows needs a
+ * few bytes per flow rather than a NetStats each.
+ */
+public class FlowStats {
+	private final long[] messages;
+	private final long[] packets;
+	private final long[] delivered;
+	private final long[] deliveredBytes;
+	private double elapsedTime;
+
+	/**
+	 * @param flows the number of flows
+	 */
+	public FlowStats(int flows) {
+		if (flows < 1) {
+			throw new IllegalArgumentException("At least one flow is required.");
+		}
+		messages = new long[flows];
+		packets = new long[flows];
+		delivered = new long[flows];
+		deliveredBytes = new long[flows];
+	}
+
+	/**
+	 * Counts a message handed to a flow's sender by its layer 5.
+	 */
+	public void message(int flow) {
+		messages[flow]++;
+	}
+
+	/**
+	 * Counts a packet a flow's sender put on the network.
+	 */
+	public void packet(int flow) {
+		packets[flow]++;
+	}
+
+	/**
+	 * Counts a message delivered to a flow's receiving layer 5.
+	 * @param bytes the length of the message
+	 */
+	public void delivered(int flow, int bytes) {
+		delivered[flow]++;
+		deliveredBytes[flow] += bytes;
+	}
+
+	public void setElapsedTime(double time) {
+		elapsedTime = time;
+	}
+
+	public int getFlowCount() {
+		return messages.length;
+	}
+
+	public long getMessages(int flow) {
+		return messages[flow];
+	}
+
+	public long getPackets(int flow) {
+		return packets[flow];
+	}
+
+	public long getDelivered(int flow) {
+		return delivered[flow];
+	}
+
+	public long getDeliveredBytes(int flow) {
+		return deliveredBytes[flow];
+	}
+
+	public double getElapsedTime() {
+		return elapsedTime;
+	}
+
+	/**
+	 * @return the bytes a flow delivered per simulated time unit
+	 */
+	public double getGoodput(int flow) {
+		return elapsedTime > 0 ? deliveredBytes[flow] / elapsedTime : 0.0;
+	}
+
+	/**
+	 * Jain's fairness index of the bytes the flows delivered: 1 if every flow got the same share,
+	 * down to 1/n if one flow got everything.
+	 * @return the index, 1 if nothing was delivered
+	 */
+	public double getFairness() {
+		double sum = 0.0;
+		double sumOfSquares = 0.0;
+		for (long bytes : deliveredBytes) {
+			sum += bytes;
+			sumOfSquares += (double) bytes * bytes;
+		}
+		if (sumOfSquares == 0.0) {
+			return 1.0;
+		}
+		return sum * sum / (deliveredBytes.length * sumOfSquares);
+	}
+
+	public String getStats() {
+		double min = Double.POSITIVE_INFINITY;
+		double max = 0.0;
+		double sum = 0.0;
+		for (int flow = 0; flow < deliveredBytes.length; flow++) {
+			double goodput = getGoodput(flow);
+			min = Math.min(min, goodput);
+			max = Math.max(max, goodput);
+			sum += goodput;
+		}
+		return String.format(Locale.ROOT,
+				"\n-==FLOW STATS==-\n" +
+				"Flows: %d\n" +
+				"Goodput per Flow (bytes/time) min/mean/max: %f/%f/%f\n" +
+				"Fairness (Jain's index): %f\n",
+				deliveredBytes.length, min, sum / deliveredBytes.length, max, getFairness());
+	}
+}
@@ -0,0 +1,138 @@
+package edu.cs4480.protocol.stats;
+
+import java.util.Arrays;
+
+/**
+ * A compact log-linear histogram of non-negative values. Values are stored as multiples of
+ * 1/scale. Counts are exact up to 128 units and within 1/64 of the value above that, so a
+ * histogram covering the whole long range needs fewer than 4000 buckets. Histograms with the
+ * same scale can be merged.
+ */
+public class Histogram {
+	private static final int SUB_BITS = 7;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int HALF_COUNT = SUB_COUNT >> 1;
+	private static final int BUCKETS = SUB_COUNT + (64 - SUB_BITS) * HALF_COUNT;
+
+	private final double scale;
+	private final long[] counts;
+	private long total;
+	private double sum;
+	private double min;
+	private double max;
+
+	/**
+	 * @param scale the number of buckets per value unit, e.g. 1000 to resolve 0.001
+	 */
+	public Histogram(double scale) {
+		if (scale <= 0) {
+			throw new IllegalArgumentException("Scale must be positive.");
+		}
+		this.scale = scale;
+		this.counts = new long[BUCKETS];
+		reset();
+	}
+
+	public void record(double value) {
+		record(value, 1);
+	}
+
+	public void record(double value, long count) {
+		if (value < 0 || Double.isNaN(value)) {
+			throw new IllegalArgumentException("Value must be non-negative: " + value);
+		}
+		counts[indexOf(Math.round(value * scale))] += count;
+		total += count;
+		sum += value * count;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	/**
+	 * Adds every value recorded in "other" to this histogram.
+	 * @param other a histogram with the same scale
+	 */
+	public void merge(Histogram other) {
+		if (other.scale != scale) {
+			throw new IllegalArgumentException("Cannot merge histograms with different scales.");
+		}
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] += other.counts[i];
+		}
+		total += other.total;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	public void reset() {
+		Arrays.fill(counts, 0);
+		total = 0;
+		sum = 0;
+		min = Double.POSITIVE_INFINITY;
+		max = Double.NEGATIVE_INFINITY;
+	}
+
+	public long getCount() {
+		return total;
+	}
+
+	public double getMean() {
+		return total == 0 ? 0.0 : sum / total;
+	}
+
+	public double getMin() {
+		return total == 0 ? 0.0 : min;
+	}
+
+	public double getMax() {
+		return total == 0 ? 0.0 : max;
+	}
+
+	/**
+	 * @param quantile between 0 and 1, e.g. 0.999 for p999
+	 * @return the value at the quantile, or 0 if nothing was recorded
+	 */
+	public double getPercentile(double quantile) {
+		if (total == 0) {
+			return 0.0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(quantile * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				// Report the middle of the bucket, clamped to what was actually recorded
+				double value = (lowerBound(i) + upperBound(i)) / 2.0 / scale;
+				return Math.max(getMin(), Math.min(getMax(), value));
+			}
+		}
+		return getMax();
+	}
+
+	private static int indexOf(long unit) {
+		if (unit < SUB_COUNT) {
+			return (int) unit;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(unit) - (SUB_BITS - 1);
+		return SUB_COUNT + (shift - 1) * HALF_COUNT + (int) ((unit >>> shift) - HALF_COUNT);
+	}
+
+	private static long lowerBound(int index) {
+		if (index < SUB_COUNT) {
+			return index;
+		}
+		int shift = (index - SUB_COUNT) / HALF_COUNT + 1;
+		long sub = (index - SUB_COUNT) % HALF_COUNT + HALF_COUNT;
+		return sub << shift;
+	}
+
+	private static long upperBound(int index) {
+		if (index < SUB_COUNT) {
+			return index;
+		}
+		int shift = (index - SUB_COUNT) / HALF_COUNT + 1;
+		long sub = (index - SUB_COUNT) % HALF_COUNT + HALF_COUNT;
+		return ((sub + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,80 @@
+package edu.cs4480.protocol.stats;
+
+import java.util.Locale;
+
+/**
+ * What happened at one link of a topology: the packets offered to it, the ones its queue dropped,
+ * how full the queue was when each packet arrived and how long the accepted ones waited.
+ */
+public class LinkStats {
+	// Queueing delays are kept to a thousandth of a simulated time unit
+	private static final double DELAY_SCALE = 1000.0;
+
+	private final String name;
+	private long packets;
+	private long drops;
+	private final Histogram occupancy = new Histogram(1.0);
+	private final Histogram queueDelay = new Histogram(DELAY_SCALE);
+
+	/**
+	 * @param name the link's name, e.g. "r1->b"
+	 */
+	public LinkStats(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Counts a packet the link's queue accepted.
+	 * @param queued the packets already in the queue when it arrived
+	 * @param delay how long it waited for them
+	 */
+	public void accepted(int queued, double delay) {
+		packets++;
+		occupancy.record(queued);
+		queueDelay.record(delay);
+	}
+
+	/**
+	 * Counts a packet the link's queue dropped.
+	 * @param queued the packets in the queue when it arrived
+	 */
+	public void dropped(int queued) {
+		packets++;
+		drops++;
+		occupancy.record(queued);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the packets offered to the link, including the dropped ones
+	 */
+	public long getPackets() {
+		return packets;
+	}
+
+	public long getDrops() {
+		return drops;
+	}
+
+	/**
+	 * @return the queue lengths arriving packets found
+	 */
+	public Histogram getOccupancy() {
+		return occupancy;
+	}
+
+	public Histogram getQueueDelay() {
+		return queueDelay;
+	}
+
+	public String getStats() {
+		return String.format(Locale.ROOT,
+				"Link %s packets/drops: %d/%d  queue mean/p99/max: %f/%.0f/%.0f  " +
+				"delay mean/p99/max: %f/%f/%f\n",
+				name, packets, drops, occupancy.getMean(), occupancy.getPercentile(0.99), occupancy.getMax(),
+				queueDelay.getMean(), queueDelay.getPercentile(0.99), queueDelay.getMax());
+	}
+}
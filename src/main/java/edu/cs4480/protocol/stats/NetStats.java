@@ -4,23 +4,32 @@ package edu.cs4480.protocol.stats;
  * Created by andresmonroy on 3/16/14.
  */
 public class NetStats {
-	private static NetStats instance;
+	// Latencies are kept to a thousandth of a simulated time unit
+	private static final double LATENCY_SCALE = 1000.0;
 
-	private int droppedMsgs;
-	private int transmittedMsg;
-	private int lostPackets;
-	private int corruptedPackets;
-	private int totalPackets;
-	private int deliveredMsgs;
+	private long droppedMsgs;
+	private long transmittedMsg;
+	private long lostPackets;
+	private long corruptedPackets;
+	private long totalPackets;
+	private long deliveredMsgs;
+	private long retransmittedPackets;
+	private long fastRecoveries;
+	private long timeoutRecoveries;
+	private long linkDrops;
+	private double elapsedTime;
+	private final Histogram latency = new Histogram(LATENCY_SCALE);
+	private final Histogram retransmissions = new Histogram(1.0);
+	private final Histogram rtt = new Histogram(LATENCY_SCALE);
+	private final Histogram queueDelay = new Histogram(LATENCY_SCALE);
+	private final Histogram linkQueueDelay = new Histogram(LATENCY_SCALE);
+	private final TimeSeries rto = new TimeSeries();
+	private final TimeSeries cwnd = new TimeSeries();
 
-	private NetStats(){
-	}
-
-	public static NetStats getInstance(){
-		if (instance == null){
-			instance = new NetStats();
-		}
-		return instance;
+	/**
+	 * Each simulator owns its own stats, so simulations can run side by side.
+	 */
+	public NetStats(){
 	}
 
 	public void transMsg(){
@@ -43,10 +52,221 @@ public class NetStats {
 		totalPackets++;
 	}
 
+	public void retransmitPkt(){
+		retransmittedPackets++;
+	}
+
+	/**
+	 * Counts a loss the sender recovered from without waiting for its timer, e.g. on duplicate ACKs.
+	 */
+	public void fastRecovery(){
+		fastRecoveries++;
+	}
+
+	/**
+	 * Counts a loss the sender only recovered from when its retransmission timer expired.
+	 */
+	public void timeoutRecovery(){
+		timeoutRecoveries++;
+	}
+
+	/**
+	 * Counts a packet dropped by a link's queue, as opposed to one lost on the wire.
+	 */
+	public void linkDrop(){
+		linkDrops++;
+	}
+
+	/**
+	 * Records how long a packet waited in a link's queue for the packets ahead of it to be sent.
+	 * @param delay the queueing delay, 0 if the link was idle
+	 */
+	public void linkQueued(double delay){
+		linkQueueDelay.record(delay);
+	}
+
 	public void msgDelivered(){
 		deliveredMsgs++;
 	}
 
+	/**
+	 * Counts a delivered message and records how long it took to get from the sender's layer 5
+	 * to the receiver's.
+	 * @param delay the end to end latency in simulated time
+	 */
+	public void msgDelivered(double delay){
+		deliveredMsgs++;
+		latency.record(delay);
+	}
+
+	/**
+	 * Records how long a message waited in the sender's buffer before it was first transmitted.
+	 * @param delay the queueing delay, 0 if it was sent at once
+	 */
+	public void msgQueued(double delay){
+		queueDelay.record(delay);
+	}
+
+	/**
+	 * Records how many times a message's packet had to be retransmitted before it was acknowledged.
+	 * @param count the number of retransmissions
+	 */
+	public void msgAcked(int count){
+		retransmissions.record(count);
+	}
+
+	/**
+	 * Records a round trip time measured by the sender.
+	 * @param sample the time from sending a packet to receiving its ACK
+	 */
+	public void rttSample(double sample){
+		rtt.record(sample);
+	}
+
+	/**
+	 * Records the retransmission timeout in effect from the given time on.
+	 * @param time the simulator time of the change
+	 * @param timeout the new timeout
+	 */
+	public void rtoChanged(double time, double timeout){
+		rto.record(time, timeout);
+	}
+
+	/**
+	 * Records the sender's congestion window in effect from the given time on.
+	 * @param time the simulator time of the change
+	 * @param window the number of packets allowed in flight
+	 */
+	public void cwndChanged(double time, int window){
+		cwnd.record(time, window);
+	}
+
+	/**
+	 * Sets the simulated time the run covered, used for the throughput figures.
+	 * @param time the simulator time when the run ended
+	 */
+	public void setElapsedTime(double time){
+		elapsedTime = time;
+	}
+
+	/**
+	 * Adds the counts and histograms of another run or shard to these stats. Elapsed times add up,
+	 * so the merged throughput is the average over all merged runs.
+	 * @param other the stats to add
+	 */
+	public void merge(NetStats other){
+		droppedMsgs += other.droppedMsgs;
+		transmittedMsg += other.transmittedMsg;
+		lostPackets += other.lostPackets;
+		corruptedPackets += other.corruptedPackets;
+		totalPackets += other.totalPackets;
+		deliveredMsgs += other.deliveredMsgs;
+		retransmittedPackets += other.retransmittedPackets;
+		fastRecoveries += other.fastRecoveries;
+		timeoutRecoveries += other.timeoutRecoveries;
+		linkDrops += other.linkDrops;
+		elapsedTime += other.elapsedTime;
+		latency.merge(other.latency);
+		retransmissions.merge(other.retransmissions);
+		rtt.merge(other.rtt);
+		queueDelay.merge(other.queueDelay);
+		linkQueueDelay.merge(other.linkQueueDelay);
+		rto.merge(other.rto);
+		cwnd.merge(other.cwnd);
+	}
+
+	public long getTransmittedMsgs(){
+		return transmittedMsg;
+	}
+
+	public long getDroppedMsgs(){
+		return droppedMsgs;
+	}
+
+	public long getDeliveredMsgs(){
+		return deliveredMsgs;
+	}
+
+	public long getLostPackets(){
+		return lostPackets;
+	}
+
+	public long getCorruptedPackets(){
+		return corruptedPackets;
+	}
+
+	public long getTotalPackets(){
+		return totalPackets;
+	}
+
+	public long getRetransmittedPackets(){
+		return retransmittedPackets;
+	}
+
+	public long getFastRecoveries(){
+		return fastRecoveries;
+	}
+
+	public long getTimeoutRecoveries(){
+		return timeoutRecoveries;
+	}
+
+	public long getLinkDrops(){
+		return linkDrops;
+	}
+
+	public double getElapsedTime(){
+		return elapsedTime;
+	}
+
+	public Histogram getLatency(){
+		return latency;
+	}
+
+	public Histogram getRetransmissions(){
+		return retransmissions;
+	}
+
+	public Histogram getQueueDelay(){
+		return queueDelay;
+	}
+
+	public Histogram getLinkQueueDelay(){
+		return linkQueueDelay;
+	}
+
+	public Histogram getRtt(){
+		return rtt;
+	}
+
+	/**
+	 * @return the retransmission timeout over time, one point per change
+	 */
+	public TimeSeries getRto(){
+		return rto;
+	}
+
+	/**
+	 * @return the congestion window over time, one point per change
+	 */
+	public TimeSeries getCwnd(){
+		return cwnd;
+	}
+
+	/**
+	 * @return messages accepted for transmission per simulated time unit
+	 */
+	public double getThroughput(){
+		return elapsedTime > 0 ? transmittedMsg / elapsedTime : 0.0;
+	}
+
+	/**
+	 * @return messages delivered to the receiver's layer 5 per simulated time unit
+	 */
+	public double getGoodput(){
+		return elapsedTime > 0 ? deliveredMsgs / elapsedTime : 0.0;
+	}
+
 	public String getStats(){
 		return String.format(
 				"\n-==NET STATS==-\n" +
@@ -57,10 +277,36 @@ public class NetStats {
 				"Total Packets: %d\n" +
 				"Lost Packets: %d\n" +
 				"Corrupted Packets: %d\n" +
+				"Retransmitted Packets: %d\n" +
+				"Loss Recoveries fast/timeout: %d/%d\n" +
 				"Percent Lost: %f\n" +
-				"Percent Corrupted: %f\n", (transmittedMsg + droppedMsgs), transmittedMsg, droppedMsgs, deliveredMsgs,
-				totalPackets, lostPackets, corruptedPackets,
+				"Percent Corrupted: %f\n" +
+				"Elapsed Time: %f\n" +
+				"Throughput (msgs/time): %f\n" +
+				"Goodput (msgs/time): %f\n" +
+				"Latency mean/p50/p99/p999/max: %f/%f/%f/%f/%f\n" +
+				"Queueing Delay mean/p50/p99/p999/max: %f/%f/%f/%f/%f\n" +
+				"Link Queue drops/mean/p50/p99/max: %d/%f/%f/%f/%f\n" +
+				"Retransmissions per Message mean/p50/p99/p999/max: %f/%.0f/%.0f/%.0f/%.0f\n" +
+				"RTT samples/mean/p50/p99/max: %d/%f/%f/%f/%f\n" +
+				"RTO changes/min/mean/max/final: %d/%f/%f/%f/%f\n" +
+				"Congestion Window changes/min/mean/max/final: %d/%.0f/%f/%.0f/%.0f\n",
+				(transmittedMsg + droppedMsgs), transmittedMsg, droppedMsgs, deliveredMsgs,
+				totalPackets, lostPackets, corruptedPackets, retransmittedPackets, fastRecoveries, timeoutRecoveries,
 				((double)lostPackets/(double)totalPackets) * 100f,
-				((double)corruptedPackets/(double)(totalPackets-lostPackets)) * 100f);
+				((double)corruptedPackets/(double)(totalPackets-lostPackets)) * 100f,
+				elapsedTime, getThroughput(), getGoodput(),
+				latency.getMean(), latency.getPercentile(0.5), latency.getPercentile(0.99),
+				latency.getPercentile(0.999), latency.getMax(),
+				queueDelay.getMean(), queueDelay.getPercentile(0.5), queueDelay.getPercentile(0.99),
+				queueDelay.getPercentile(0.999), queueDelay.getMax(),
+				linkDrops, linkQueueDelay.getMean(), linkQueueDelay.getPercentile(0.5),
+				linkQueueDelay.getPercentile(0.99), linkQueueDelay.getMax(),
+				retransmissions.getMean(), retransmissions.getPercentile(0.5),
+				retransmissions.getPercentile(0.99), retransmissions.getPercentile(0.999),
+				retransmissions.getMax(),
+				rtt.getCount(), rtt.getMean(), rtt.getPercentile(0.5), rtt.getPercentile(0.99), rtt.getMax(),
+				rto.size(), rto.getMin(), rto.getMean(), rto.getMax(), rto.getLast(),
+				cwnd.size(), cwnd.getMin(), cwnd.getMean(), cwnd.getMax(), cwnd.getLast());
 	}
 }
@@ -0,0 +1,103 @@
+package edu.cs4480.protocol.stats;
+
+import java.util.Locale;
+
+/**
+ * What a run on real UDP sockets cost: the datagrams it sent and received, and the wall-clock
+ * and CPU time it took. Datagrams that were sent but never received were lost by the sockets
+ * themselves, e.g. because a receive buffer was full.
+ */
+public class SocketStats {
+	private long sent;
+	private long received;
+	private long sendFailures;
+	private long bytesSent;
+	private long wallNanos;
+	private long cpuNanos = -1;
+
+	/**
+	 * Counts a datagram handed to a socket.
+	 * @param bytes its length
+	 */
+	public void sent(int bytes) {
+		sent++;
+		bytesSent += bytes;
+	}
+
+	public void received() {
+		received++;
+	}
+
+	/**
+	 * Counts a datagram a socket had no room for.
+	 */
+	public void sendFailed() {
+		sendFailures++;
+	}
+
+	public void setWallNanos(long nanos) {
+		wallNanos = nanos;
+	}
+
+	/**
+	 * @param nanos the CPU time of the thread that ran the sockets, -1 if it cannot be measured
+	 */
+	public void setCpuNanos(long nanos) {
+		cpuNanos = nanos;
+	}
+
+	public long getSent() {
+		return sent;
+	}
+
+	public long getReceived() {
+		return received;
+	}
+
+	public long getSendFailures() {
+		return sendFailures;
+	}
+
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	public long getWallNanos() {
+		return wallNanos;
+	}
+
+	public long getCpuNanos() {
+		return cpuNanos;
+	}
+
+	/**
+	 * @return the datagrams sent per second of wall-clock time
+	 */
+	public double getPacketRate() {
+		return wallNanos > 0 ? sent * 1e9 / wallNanos : 0.0;
+	}
+
+	/**
+	 * @return the CPU time per datagram sent or received, in microseconds, or -1 if it could not
+	 * be measured
+	 */
+	public double getCpuPerPacket() {
+		long packets = sent + received;
+		if (cpuNanos < 0 || packets == 0) {
+			return -1.0;
+		}
+		return cpuNanos / 1e3 / packets;
+	}
+
+	public String getStats() {
+		return String.format(Locale.ROOT,
+				"\n-==SOCKET STATS==-\n" +
+				"Datagrams sent/received/send failures: %d/%d/%d\n" +
+				"Wall-clock time (s): %f\n" +
+				"Datagrams per second: %f\n" +
+				"Bytes per second: %f\n" +
+				"CPU per datagram (us): %f\n",
+				sent, received, sendFailures, wallNanos / 1e9, getPacketRate(),
+				wallNanos > 0 ? bytesSent * 1e9 / wallNanos : 0.0, getCpuPerPacket());
+	}
+}
@@ -0,0 +1,103 @@
+package edu.cs4480.protocol.stats;
+
+import java.util.Arrays;
+
+/**
+ * A value that changes over simulated time, kept as (time, value) points in the order they were
+ * recorded. A point is only stored when the value actually changes, so a setting that stays put
+ * costs one point however often it is reported.
+ */
+public class TimeSeries {
+	private static final int INITIAL_CAPACITY = 16;
+
+	private double[] times = new double[INITIAL_CAPACITY];
+	private double[] values = new double[INITIAL_CAPACITY];
+	private int size;
+
+	public void record(double time, double value) {
+		if (size > 0 && values[size - 1] == value) {
+			return;
+		}
+		if (size == times.length) {
+			times = Arrays.copyOf(times, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		times[size] = time;
+		values[size] = value;
+		size++;
+	}
+
+	/**
+	 * Appends the points of another series, e.g. from another run. The result is no longer in
+	 * time order, but its min, max and mean still cover both series.
+	 * @param other the series to append
+	 */
+	public void merge(TimeSeries other) {
+		for (int i = 0; i < other.size; i++) {
+			if (size == times.length) {
+				times = Arrays.copyOf(times, Math.max(size * 2, size + other.size));
+				values = Arrays.copyOf(values, times.length);
+			}
+			times[size] = other.times[i];
+			values[size] = other.values[i];
+			size++;
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public double getTime(int index) {
+		checkIndex(index);
+		return times[index];
+	}
+
+	public double getValue(int index) {
+		checkIndex(index);
+		return values[index];
+	}
+
+	/**
+	 * @return the most recently recorded value, or 0 if there is none
+	 */
+	public double getLast() {
+		return size > 0 ? values[size - 1] : 0.0;
+	}
+
+	public double getMin() {
+		double min = size > 0 ? Double.MAX_VALUE : 0.0;
+		for (int i = 0; i < size; i++) {
+			min = Math.min(min, values[i]);
+		}
+		return min;
+	}
+
+	public double getMax() {
+		double max = 0.0;
+		for (int i = 0; i < size; i++) {
+			max = Math.max(max, values[i]);
+		}
+		return max;
+	}
+
+	/**
+	 * @return the mean of the recorded points, each counted once however long it held
+	 */
+	public double getMean() {
+		if (size == 0) {
+			return 0.0;
+		}
+		double sum = 0.0;
+		for (int i = 0; i < size; i++) {
+			sum += values[i];
+		}
+		return sum / size;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+}
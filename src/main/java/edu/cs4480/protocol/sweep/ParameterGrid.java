@@ -0,0 +1,400 @@
+package edu.cs4480.protocol.sweep;
+
+import edu.cs4480.protocol.framework.Engine;
+import edu.cs4480.protocol.framework.NetworkSimulator;
+import edu.cs4480.protocol.framework.Protocol;
+import edu.cs4480.protocol.link.LinkConfig;
+import edu.cs4480.protocol.link.Topology;
+import edu.cs4480.protocol.traffic.Arrivals;
+import edu.cs4480.protocol.traffic.MessageSize;
+import edu.cs4480.protocol.transport.TransportConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The values to sweep for each simulator parameter. Every combination is run
+ * once per replication.
+ */
+public class ParameterGrid {
+	private Protocol[] protocols = {Protocol.GBN};
+	private int[] messages = {1000};
+	private int[] flows = {1};
+	private double[] loss = {0.0};
+	private double[] corrupt = {0.0};
+	private double[] burst = {1.0};
+	private double[] bitErrorRate = {0.0};
+	private double[] delay = {1000.0};
+	private Arrivals[] arrivals = {Arrivals.UNIFORM};
+	private MessageSize[] sizes = {new MessageSize(NetworkSimulator.MAX_DATA_SIZE, NetworkSimulator.MAX_DATA_SIZE)};
+	// The original channel is used unless one of the link settings is given
+	private boolean useLink = false;
+	private double[] bandwidth = {LinkConfig.DEFAULT_BANDWIDTH};
+	private double[] propagation = {LinkConfig.DEFAULT_PROPAGATION_DELAY};
+	private double jitter = LinkConfig.DEFAULT_JITTER;
+	private LinkConfig.Jitter jitterDistribution = LinkConfig.Jitter.UNIFORM;
+	private int[] queue = {LinkConfig.DEFAULT_QUEUE_CAPACITY};
+	private LinkConfig.Discipline[] discipline = {LinkConfig.Discipline.TAIL_DROP};
+	private Topology topology = null;
+	private int[] window = {TransportConfig.DEFAULT_WINDOW_SIZE};
+	private TransportConfig.Rto[] rto = {TransportConfig.Rto.FIXED};
+	private double[] timeout = {TransportConfig.DEFAULT_TIMEOUT};
+	private TransportConfig.Congestion[] congestion = {TransportConfig.Congestion.FIXED};
+	private TransportConfig.Ack[] ack = {TransportConfig.Ack.IMMEDIATE};
+	private int ackEvery = TransportConfig.DEFAULT_ACK_EVERY;
+	private double ackDelay = TransportConfig.DEFAULT_ACK_DELAY;
+	private int[] dupAcks = {TransportConfig.DEFAULT_DUP_ACK_THRESHOLD};
+	private int[] buffer = {TransportConfig.DEFAULT_BUFFER_CAPACITY};
+	private TransportConfig.Overflow[] overflow = {TransportConfig.Overflow.DROP_TAIL};
+	private Engine[] engines = {Engine.SEQUENTIAL};
+	private int replications = 1;
+
+	public ParameterGrid setProtocols(Protocol... values) {
+		if (values == null || values.length == 0) {
+			throw new IllegalArgumentException("At least one value is required.");
+		}
+		protocols = values.clone();
+		return this;
+	}
+
+	public ParameterGrid setMessages(int... values) {
+		messages = checkNotEmpty(values).clone();
+		return this;
+	}
+
+	/**
+	 * @param values numbers of sender/receiver pairs sharing the channel, each sending the number
+	 *               of messages given to setMessages()
+	 */
+	public ParameterGrid setFlows(int... values) {
+		for (int value : checkNotEmpty(values)) {
+			if (value < 1) {
+				throw new IllegalArgumentException("At least one flow is required.");
+			}
+		}
+		flows = values.clone();
+		return this;
+	}
+
+	public ParameterGrid setLoss(double... values) {
+		loss = checkNotEmpty(values).clone();
+		return this;
+	}
+
+	public ParameterGrid setCorrupt(double... values) {
+		corrupt = checkNotEmpty(values).clone();
+		return this;
+	}
+
+	/**
+	 * @param values mean loss burst lengths; 1 for independent losses, more for a Gilbert channel
+	 *               with the same loss rate
+	 */
+	public ParameterGrid setBurst(double... values) {
+		burst = checkNotEmpty(values).clone();
+		return this;
+	}
+
+	/**
+	 * @param values bit error rates; 0 to corrupt whole packets with the corruption probability
+	 */
+	public ParameterGrid setBitErrorRate(double... values) {
+		bitErrorRate = checkNotEmpty(values).clone();
+		return this;
+	}
+
+	public ParameterGrid setDelay(double... values) {
+		delay = checkNotEmpty(values).clone();
+		return this;
+	}
+
+	public ParameterGrid setArrivals(Arrivals... values) {
+		if (values == null || values.length == 0) {
+			throw new IllegalArgumentException("At least one value is required.");
+		}
+		arrivals = values.clone();
+		return this;
+	}
+
+	/**
+	 * @param values message size ranges, at most MAX_DATA_SIZE
+	 */
+	public ParameterGrid setSizes(MessageSize... values) {
+		if (values == null || values.length == 0) {
+			throw new IllegalArgumentException("At least one value is required.");
+		}
+		for (MessageSize size : values) {
+			if (size.getMax() > NetworkSimulator.MAX_DATA_SIZE) {
+				throw new IllegalArgumentException("Messages can be at most " + NetworkSimulator.MAX_DATA_SIZE + " long.");
+			}
+		}
+		sizes = values.clone();
+		return this;
+	}
+
+	/**
+	 * @param values link rates in bytes per time unit, 0 for no limit
+	 */
+	public ParameterGrid setBandwidth(double... values) {
+		bandwidth = checkNotEmpty(values).clone();
+		useLink = true;
+		return this;
+	}
+
+	public ParameterGrid setPropagation(double... values) {
+		propagation = checkNotEmpty(values).clone();
+		useLink = true;
+		return this;
+	}
+
+	/**
+	 * Sets the link jitter for every point.
+	 */
+	public ParameterGrid setJitter(double amount, LinkConfig.Jitter distribution) {
+		if (amount < 0) {
+			throw new IllegalArgumentException("Jitter must not be negative.");
+		}
+		jitter = amount;
+		jitterDistribution = distribution;
+		useLink = true;
+		return this;
+	}
+
+	/**
+	 * @param values link queue capacities, in packets
+	 */
+	public ParameterGrid setQueue(int... values) {
+		queue = checkNotEmpty(values).clone();
+		useLink = true;
+		return this;
+	}
+
+	public ParameterGrid setDiscipline(LinkConfig.Discipline... values) {
+		if (values == null || values.length == 0) {
+			throw new IllegalArgumentException("At least one value is required.");
+		}
+		discipline = values.clone();
+		useLink = true;
+		return this;
+	}
+
+	/**
+	 * @param value a topology every run uses in place of the link settings, or null for none
+	 */
+	public ParameterGrid setTopology(Topology value) {
+		topology = (value == null) ? null : new Topology(value);
+		return this;
+	}
+
+	public ParameterGrid setWindow(int... values) {
+		window = checkNotEmpty(values).clone();
+		return this;
+	}
+
+	public ParameterGrid setRto(TransportConfig.Rto... values) {
+		if (values == null || values.length == 0) {
+			throw new IllegalArgumentException("At least one value is required.");
+		}
+		rto = values.clone();
+		return this;
+	}
+
+	/**
+	 * @param values fixed timeouts, or initial timeouts of the adaptive policy
+	 */
+	public ParameterGrid setTimeout(double... values) {
+		timeout = checkNotEmpty(values).clone();
+		return this;
+	}
+
+	public ParameterGrid setCongestion(TransportConfig.Congestion... values) {
+		if (values == null || values.length == 0) {
+			throw new IllegalArgumentException("At least one value is required.");
+		}
+		congestion = values.clone();
+		return this;
+	}
+
+	public ParameterGrid setAck(TransportConfig.Ack... values) {
+		if (values == null || values.length == 0) {
+			throw new IllegalArgumentException("At least one value is required.");
+		}
+		ack = values.clone();
+		return this;
+	}
+
+	/**
+	 * Sets how many packets a delayed ACK covers and how long it may wait, for every point.
+	 */
+	public ParameterGrid setDelayedAck(int every, double delay) {
+		if (every < 1 || delay <= 0) {
+			throw new IllegalArgumentException("ACK count must be at least 1 and the delay positive.");
+		}
+		ackEvery = every;
+		ackDelay = delay;
+		return this;
+	}
+
+	/**
+	 * @param values duplicate ACK thresholds for fast retransmit, 0 to disable it
+	 */
+	public ParameterGrid setDupAckThreshold(int... values) {
+		dupAcks = checkNotEmpty(values).clone();
+		return this;
+	}
+
+	/**
+	 * @param values sender buffer capacities, in messages
+	 */
+	public ParameterGrid setBuffer(int... values) {
+		buffer = checkNotEmpty(values).clone();
+		return this;
+	}
+
+	public ParameterGrid setOverflow(TransportConfig.Overflow... values) {
+		if (values == null || values.length == 0) {
+			throw new IllegalArgumentException("At least one value is required.");
+		}
+		overflow = values.clone();
+		return this;
+	}
+
+	public ParameterGrid setEngines(Engine... values) {
+		if (values == null || values.length == 0) {
+			throw new IllegalArgumentException("At least one value is required.");
+		}
+		engines = values.clone();
+		return this;
+	}
+
+	public ParameterGrid setReplications(int count) {
+		if (count < 1) {
+			throw new IllegalArgumentException("Replications must be at least 1.");
+		}
+		replications = count;
+		return this;
+	}
+
+	/**
+	 * Expands the grid into individual simulations. The seed of each one depends only on the base
+	 * seed and its position in the grid, so a sweep gives the same results however it is scheduled.
+	 * Protocols, engines, link and transport settings vary fastest and share a seed, so every
+	 * protocol and setting is compared on the same runs.
+	 * @param baseSeed the seed the sweep was started with
+	 * @return one point per combination and replication
+	 */
+	public List<SweepPoint> points(long baseSeed) {
+		List<SweepPoint> points = new ArrayList<SweepPoint>();
+		List<LinkConfig> links = links();
+		List<TransportConfig> configs = configs();
+		int scenario = 0;
+		for (int m : messages) {
+			for (int f : flows) {
+				for (double l : loss) {
+					for (double c : corrupt) {
+						for (double b : burst) {
+							for (double e : bitErrorRate) {
+								for (double d : delay) {
+									for (Arrivals a : arrivals) {
+										for (MessageSize size : sizes) {
+											for (int r = 0; r < replications; r++) {
+												long seed = seedFor(baseSeed, scenario++);
+												for (LinkConfig link : links) {
+													for (TransportConfig config : configs) {
+														for (Protocol p : protocols) {
+															for (Engine engine : engines) {
+																points.add(new SweepPoint(points.size(), p, m, f, l, c, b, e, d,
+																		a, size, link, topology, config, engine, r, seed));
+															}
+														}
+													}
+												}
+											}
+										}
+									}
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		return points;
+	}
+
+	/**
+	 * @return one link config per combination of the link settings, or just null for the original
+	 * channel
+	 */
+	private List<LinkConfig> links() {
+		List<LinkConfig> links = new ArrayList<LinkConfig>();
+		if (!useLink) {
+			links.add(null);
+			return links;
+		}
+		for (double b : bandwidth) {
+			for (double p : propagation) {
+				for (int q : queue) {
+					for (LinkConfig.Discipline disc : discipline) {
+						links.add(new LinkConfig().setBandwidth(b).setPropagationDelay(p)
+								.setJitter(jitter, jitterDistribution).setQueueCapacity(q).setDiscipline(disc));
+					}
+				}
+			}
+		}
+		return links;
+	}
+
+	/**
+	 * @return one transport config per combination of the transport settings
+	 */
+	private List<TransportConfig> configs() {
+		List<TransportConfig> configs = new ArrayList<TransportConfig>();
+		for (int w : window) {
+			for (TransportConfig.Rto policy : rto) {
+				for (double t : timeout) {
+					for (TransportConfig.Congestion cc : congestion) {
+						for (TransportConfig.Ack a : ack) {
+							for (int dup : dupAcks) {
+								for (int b : buffer) {
+									for (TransportConfig.Overflow o : overflow) {
+										configs.add(new TransportConfig().setWindowSize(w).setRto(policy)
+												.setInitialTimeout(t).setCongestion(cc).setAck(a).setAckEvery(ackEvery)
+												.setAckDelay(ackDelay).setDupAckThreshold(dup).setBufferCapacity(b)
+												.setOverflow(o));
+									}
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		return configs;
+	}
+
+	/**
+	 * Derives a run seed with the SplitMix64 finalizer so that neighbouring runs get unrelated
+	 * java.util.Random sequences.
+	 */
+	static long seedFor(long baseSeed, int index) {
+		long z = baseSeed + (index + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private static int[] checkNotEmpty(int[] values) {
+		if (values == null || values.length == 0) {
+			throw new IllegalArgumentException("At least one value is required.");
+		}
+		return values;
+	}
+
+	private static double[] checkNotEmpty(double[] values) {
+		if (values == null || values.length == 0) {
+			throw new IllegalArgumentException("At least one value is required.");
+		}
+		return values;
+	}
+}
@@ -0,0 +1,269 @@
+package edu.cs4480.protocol.sweep;
+
+import edu.cs4480.protocol.framework.Engine;
+import edu.cs4480.protocol.framework.Protocol;
+import edu.cs4480.protocol.link.LinkConfig;
+import edu.cs4480.protocol.link.Topology;
+import edu.cs4480.protocol.traffic.Arrivals;
+import edu.cs4480.protocol.traffic.MessageSize;
+import edu.cs4480.protocol.transport.TransportConfig;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Command line front end for parameter sweeps. Each option takes a comma separated list of
+ * values, and every combination is simulated:
+ *
+ *   --protocol gbn,sr --messages 1000 --loss 0,0.1,0.2 --corrupt 0,0.1 --delay 10 --window 8,16
+ *   --rto fixed,adaptive --timeout 20,500 --cc fixed,aimd --ack immediate,sack --reps 3 --seed 42
+ *   --dupacks 0,3 --buffer 50,500 --overflow drop-tail,block --threads 8
+ *   --bandwidth 10,100 --propagation 5,50 --queue 16,64 --aqm tail-drop,red --burst 1,4 --ber 0,1e-4
+ *   --arrivals uniform,poisson,onoff,bulk --size 20,1-20 --engine sequential,parallel --flows 1,100
+ *
+ * --jitter d sets the uniform link jitter, and --jitter-exp d an exponential one, for every run.
+ * --ack-every n and --ack-delay d set the delayed ACK parameters for every run.
+ * --flows n runs n sender/receiver pairs, each sending --messages, over the same channel or links.
+ * --topology file runs every simulation over the nodes, links and routes in the file.
+ * --trace dir writes a binary trace of every run to dir, named after the run's index.
+ * --engine udp runs the protocols in real time over loopback UDP sockets, a time unit lasting
+ * NetworkSimulator.DEFAULT_REAL_TIME_UNIT seconds; with --threads 1 the runs do not compete for CPU.
+ *
+ * The results table is printed to stdout as CSV.
+ */
+public class Sweep {
+	public static void main(String[] argv) throws Exception {
+		ParameterGrid grid = new ParameterGrid();
+		long seed = System.currentTimeMillis();
+		int threads = Runtime.getRuntime().availableProcessors();
+		int ackEvery = TransportConfig.DEFAULT_ACK_EVERY;
+		double ackDelay = TransportConfig.DEFAULT_ACK_DELAY;
+		double jitter = -1;
+		LinkConfig.Jitter jitterDistribution = LinkConfig.Jitter.UNIFORM;
+		File traceDirectory = null;
+
+		for (int i = 0; i < argv.length; i++) {
+			String option = argv[i];
+			if (i + 1 >= argv.length) {
+				usage("Missing value for " + option);
+			}
+			String value = argv[++i];
+			try {
+				if (option.equals("--protocol")) {
+					grid.setProtocols(toProtocols(value));
+				} else if (option.equals("--messages")) {
+					grid.setMessages(toInts(value));
+				} else if (option.equals("--flows")) {
+					grid.setFlows(toInts(value));
+				} else if (option.equals("--loss")) {
+					grid.setLoss(toDoubles(value));
+				} else if (option.equals("--corrupt")) {
+					grid.setCorrupt(toDoubles(value));
+				} else if (option.equals("--burst")) {
+					grid.setBurst(toDoubles(value));
+				} else if (option.equals("--ber")) {
+					grid.setBitErrorRate(toDoubles(value));
+				} else if (option.equals("--delay")) {
+					grid.setDelay(toDoubles(value));
+				} else if (option.equals("--arrivals")) {
+					grid.setArrivals(toArrivals(value));
+				} else if (option.equals("--size")) {
+					grid.setSizes(toSizes(value));
+				} else if (option.equals("--engine")) {
+					grid.setEngines(toEngines(value));
+				} else if (option.equals("--topology")) {
+					grid.setTopology(Topology.load(value));
+				} else if (option.equals("--bandwidth")) {
+					grid.setBandwidth(toDoubles(value));
+				} else if (option.equals("--propagation")) {
+					grid.setPropagation(toDoubles(value));
+				} else if (option.equals("--jitter")) {
+					jitter = Double.parseDouble(value);
+					jitterDistribution = LinkConfig.Jitter.UNIFORM;
+				} else if (option.equals("--jitter-exp")) {
+					jitter = Double.parseDouble(value);
+					jitterDistribution = LinkConfig.Jitter.EXPONENTIAL;
+				} else if (option.equals("--queue")) {
+					grid.setQueue(toInts(value));
+				} else if (option.equals("--aqm")) {
+					grid.setDiscipline(toDisciplines(value));
+				} else if (option.equals("--window")) {
+					grid.setWindow(toInts(value));
+				} else if (option.equals("--rto")) {
+					grid.setRto(toRtos(value));
+				} else if (option.equals("--timeout")) {
+					grid.setTimeout(toDoubles(value));
+				} else if (option.equals("--cc")) {
+					grid.setCongestion(toCongestion(value));
+				} else if (option.equals("--ack")) {
+					grid.setAck(toAcks(value));
+				} else if (option.equals("--ack-every")) {
+					ackEvery = Integer.parseInt(value);
+				} else if (option.equals("--ack-delay")) {
+					ackDelay = Double.parseDouble(value);
+				} else if (option.equals("--dupacks")) {
+					grid.setDupAckThreshold(toInts(value));
+				} else if (option.equals("--buffer")) {
+					grid.setBuffer(toInts(value));
+				} else if (option.equals("--overflow")) {
+					grid.setOverflow(toOverflows(value));
+				} else if (option.equals("--reps")) {
+					grid.setReplications(Integer.parseInt(value));
+				} else if (option.equals("--seed")) {
+					seed = Long.parseLong(value);
+				} else if (option.equals("--threads")) {
+					threads = Integer.parseInt(value);
+				} else if (option.equals("--trace")) {
+					traceDirectory = new File(value);
+					if (!traceDirectory.isDirectory()) {
+						usage("No directory " + value);
+					}
+				} else {
+					usage("Unknown option " + option);
+				}
+			} catch (IllegalArgumentException e) {
+				usage("Bad value for " + option + ": " + value);
+			} catch (IOException e) {
+				usage("Cannot read " + value);
+			}
+		}
+
+		try {
+			grid.setDelayedAck(ackEvery, ackDelay);
+		} catch (IllegalArgumentException e) {
+			usage("Bad delayed ACK settings: " + e.getMessage());
+		}
+		if (jitter >= 0) {
+			try {
+				grid.setJitter(jitter, jitterDistribution);
+			} catch (IllegalArgumentException e) {
+				usage("Bad jitter: " + e.getMessage());
+			}
+		}
+
+		// Per-packet logging from every run would bury the table
+		LogManager.getRootLogger().setLevel(Level.WARN);
+
+		List<SweepPoint> points = grid.points(seed);
+		System.err.println("Running " + points.size() + " simulations on " + threads + " threads, seed " + seed);
+		List<SweepResult> results = new SweepRunner(threads).setTraceDirectory(traceDirectory).run(points);
+		SweepTable.write(results, System.out);
+	}
+
+	private static Protocol[] toProtocols(String value) {
+		String[] parts = value.split(",");
+		Protocol[] values = new Protocol[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			values[i] = Protocol.parse(parts[i]);
+		}
+		return values;
+	}
+
+	private static LinkConfig.Discipline[] toDisciplines(String value) {
+		String[] parts = value.split(",");
+		LinkConfig.Discipline[] values = new LinkConfig.Discipline[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			values[i] = LinkConfig.Discipline.parse(parts[i]);
+		}
+		return values;
+	}
+
+	private static TransportConfig.Rto[] toRtos(String value) {
+		String[] parts = value.split(",");
+		TransportConfig.Rto[] values = new TransportConfig.Rto[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			values[i] = TransportConfig.Rto.parse(parts[i]);
+		}
+		return values;
+	}
+
+	private static TransportConfig.Congestion[] toCongestion(String value) {
+		String[] parts = value.split(",");
+		TransportConfig.Congestion[] values = new TransportConfig.Congestion[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			values[i] = TransportConfig.Congestion.parse(parts[i]);
+		}
+		return values;
+	}
+
+	private static TransportConfig.Ack[] toAcks(String value) {
+		String[] parts = value.split(",");
+		TransportConfig.Ack[] values = new TransportConfig.Ack[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			values[i] = TransportConfig.Ack.parse(parts[i]);
+		}
+		return values;
+	}
+
+	private static TransportConfig.Overflow[] toOverflows(String value) {
+		String[] parts = value.split(",");
+		TransportConfig.Overflow[] values = new TransportConfig.Overflow[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			values[i] = TransportConfig.Overflow.parse(parts[i]);
+		}
+		return values;
+	}
+
+	private static Arrivals[] toArrivals(String value) {
+		String[] parts = value.split(",");
+		Arrivals[] values = new Arrivals[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			values[i] = Arrivals.parse(parts[i]);
+		}
+		return values;
+	}
+
+	private static Engine[] toEngines(String value) {
+		String[] parts = value.split(",");
+		Engine[] values = new Engine[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			values[i] = Engine.parse(parts[i]);
+		}
+		return values;
+	}
+
+	private static MessageSize[] toSizes(String value) {
+		String[] parts = value.split(",");
+		MessageSize[] values = new MessageSize[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			values[i] = MessageSize.parse(parts[i]);
+		}
+		return values;
+	}
+
+	private static int[] toInts(String value) {
+		String[] parts = value.split(",");
+		int[] values = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			values[i] = Integer.parseInt(parts[i].trim());
+		}
+		return values;
+	}
+
+	private static double[] toDoubles(String value) {
+		String[] parts = value.split(",");
+		double[] values = new double[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			values[i] = Double.parseDouble(parts[i].trim());
+		}
+		return values;
+	}
+
+	private static void usage(String error) {
+		System.err.println(error);
+		System.err.println("Usage: Sweep [--protocol gbn,sr] [--messages n,..] [--flows n,..] [--loss p,..] " +
+				"[--corrupt p,..] " +
+				"[--burst b,..] [--ber e,..] [--delay d,..] [--arrivals uniform,poisson,onoff,bulk] " +
+				"[--size n or min-max,..] [--bandwidth b,..] [--propagation d,..] " +
+				"[--jitter d | --jitter-exp d] [--queue n,..] [--aqm tail-drop,red] [--topology file] " +
+				"[--window w,..] " +
+				"[--rto fixed,adaptive] [--timeout t,..] [--cc fixed,aimd] " +
+				"[--ack immediate,cumulative,delayed,sack] [--ack-every n] [--ack-delay d] [--dupacks n,..] " +
+				"[--buffer n,..] [--overflow drop-tail,drop-head,block] [--engine sequential,parallel,udp] [--reps n] " +
+				"[--seed s] [--threads n] [--trace dir]");
+		System.exit(1);
+	}
+}
@@ -0,0 +1,142 @@
+package edu.cs4480.protocol.sweep;
+
+import edu.cs4480.protocol.framework.Engine;
+import edu.cs4480.protocol.framework.Protocol;
+import edu.cs4480.protocol.link.LinkConfig;
+import edu.cs4480.protocol.link.Topology;
+import edu.cs4480.protocol.traffic.Arrivals;
+import edu.cs4480.protocol.traffic.MessageSize;
+import edu.cs4480.protocol.transport.TransportConfig;
+
+/**
+ * One simulation in a parameter sweep.
+ */
+public class SweepPoint {
+	private final int index;
+	private final Protocol protocol;
+	private final int messages;
+	private final int flows;
+	private final double loss;
+	private final double corrupt;
+	private final double burst;
+	private final double bitErrorRate;
+	private final double delay;
+	private final Arrivals arrivals;
+	private final MessageSize size;
+	private final LinkConfig link;
+	private final Topology topology;
+	private final TransportConfig config;
+	private final Engine engine;
+	private final int replication;
+	private final long seed;
+
+	public SweepPoint(int index, Protocol protocol, int messages, int flows, double loss, double corrupt,
+					  double burst, double bitErrorRate, double delay, Arrivals arrivals, MessageSize size,
+					  LinkConfig link, Topology topology, TransportConfig config, Engine engine, int replication,
+					  long seed) {
+		this.index = index;
+		this.protocol = protocol;
+		this.messages = messages;
+		this.flows = flows;
+		this.loss = loss;
+		this.corrupt = corrupt;
+		this.burst = burst;
+		this.bitErrorRate = bitErrorRate;
+		this.delay = delay;
+		this.arrivals = arrivals;
+		this.size = size;
+		this.link = link;
+		this.topology = topology;
+		this.config = config;
+		this.engine = engine;
+		this.replication = replication;
+		this.seed = seed;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public Protocol getProtocol() {
+		return protocol;
+	}
+
+	public int getMessages() {
+		return messages;
+	}
+
+	public int getFlows() {
+		return flows;
+	}
+
+	public double getLoss() {
+		return loss;
+	}
+
+	public double getCorrupt() {
+		return corrupt;
+	}
+
+	/**
+	 * @return the mean loss burst length; 1 for independent losses
+	 */
+	public double getBurst() {
+		return burst;
+	}
+
+	/**
+	 * @return the bit error rate, or 0 to corrupt whole packets with the corruption probability
+	 */
+	public double getBitErrorRate() {
+		return bitErrorRate;
+	}
+
+	public double getDelay() {
+		return delay;
+	}
+
+	/**
+	 * @return the arrival process, whose mean gap is the delay
+	 */
+	public Arrivals getArrivals() {
+		return arrivals;
+	}
+
+	public MessageSize getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the link settings, or null for the original channel; shared with other points, so not
+	 * to be modified
+	 */
+	public LinkConfig getLink() {
+		return link;
+	}
+
+	/**
+	 * @return the topology every run uses in place of the link, or null
+	 */
+	public Topology getTopology() {
+		return topology;
+	}
+
+	/**
+	 * @return the transport settings; shared with other points, so not to be modified
+	 */
+	public TransportConfig getConfig() {
+		return config;
+	}
+
+	public Engine getEngine() {
+		return engine;
+	}
+
+	public int getReplication() {
+		return replication;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+}
@@ -0,0 +1,53 @@
+package edu.cs4480.protocol.sweep;
+
+import edu.cs4480.protocol.stats.FlowStats;
+import edu.cs4480.protocol.stats.NetStats;
+
+/**
+ * The outcome of one simulation in a sweep.
+ */
+public class SweepResult {
+	private final SweepPoint point;
+	private final NetStats stats;
+	private final FlowStats flowStats;
+	private final long events;
+	private final long wallNanos;
+	private final long cpuNanos;
+
+	/**
+	 * @param cpuNanos the CPU time of the thread the simulation ran on, -1 if it could not be measured
+	 */
+	public SweepResult(SweepPoint point, NetStats stats, FlowStats flowStats, long events, long wallNanos,
+					   long cpuNanos) {
+		this.point = point;
+		this.stats = stats;
+		this.flowStats = flowStats;
+		this.events = events;
+		this.wallNanos = wallNanos;
+		this.cpuNanos = cpuNanos;
+	}
+
+	public SweepPoint getPoint() {
+		return point;
+	}
+
+	public NetStats getStats() {
+		return stats;
+	}
+
+	public FlowStats getFlowStats() {
+		return flowStats;
+	}
+
+	public long getEvents() {
+		return events;
+	}
+
+	public long getWallNanos() {
+		return wallNanos;
+	}
+
+	public long getCpuNanos() {
+		return cpuNanos;
+	}
+}
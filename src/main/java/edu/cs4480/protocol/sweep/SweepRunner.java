@@ -0,0 +1,149 @@
+package edu.cs4480.protocol.sweep;
+
+import edu.cs4480.protocol.framework.NetworkSimulator;
+import edu.cs4480.protocol.link.BitErrorCorruption;
+import edu.cs4480.protocol.link.GilbertElliottLoss;
+import edu.cs4480.protocol.trace.TraceWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the simulations of a sweep in parallel. Every run gets its own simulator, random
+ * generator and stats, so runs share no state and their results do not depend on the
+ * number of threads.
+ */
+public class SweepRunner {
+	private final int threads;
+	private File traceDirectory;
+
+	public SweepRunner() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public SweepRunner(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("At least one thread is required.");
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Makes every run write a binary trace, named after the point's index, e.g. "12.trace".
+	 * @param directory where the traces go, or null for none
+	 * @return this runner
+	 */
+	public SweepRunner setTraceDirectory(File directory) {
+		traceDirectory = directory;
+		return this;
+	}
+
+	/**
+	 * Runs every point and waits for all of them to finish.
+	 * @param points the simulations to run
+	 * @return the results, in the same order as the points
+	 * @throws ExecutionException if any simulation failed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public List<SweepResult> run(List<SweepPoint> points) throws ExecutionException, InterruptedException {
+		List<Callable<SweepResult>> tasks = new ArrayList<Callable<SweepResult>>(points.size());
+		for (final SweepPoint point : points) {
+			tasks.add(new Callable<SweepResult>() {
+				public SweepResult call() throws IOException {
+					if (traceDirectory == null) {
+						return runOne(point);
+					}
+					return runOne(point, new File(traceDirectory, point.getIndex() + ".trace").getPath());
+				}
+			});
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			List<SweepResult> results = new ArrayList<SweepResult>(points.size());
+			for (Future<SweepResult> future : pool.invokeAll(tasks)) {
+				results.add(future.get());
+			}
+			return results;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Runs a single simulation on the calling thread.
+	 * @param point the parameters of the simulation
+	 * @return its result
+	 */
+	public static SweepResult runOne(SweepPoint point) {
+		try {
+			return runOne(point, null);
+		} catch (IOException ioe) {
+			// Nothing is written without a trace
+			throw new IllegalStateException(ioe);
+		}
+	}
+
+	/**
+	 * Runs a single simulation on the calling thread, recording it in a binary trace.
+	 * @param point the parameters of the simulation
+	 * @param tracePath the trace file to write, or null for none
+	 * @return its result
+	 * @throws IOException if the trace cannot be written
+	 */
+	public static SweepResult runOne(SweepPoint point, String tracePath) throws IOException {
+		NetworkSimulator simulator = createFlow(point, point.getSeed());
+		// The first flow uses the point's seed, so a single flow runs as it always has
+		for (int flow = 1; flow < point.getFlows(); flow++) {
+			simulator.addFlow(createFlow(point, ParameterGrid.seedFor(point.getSeed(), flow)));
+		}
+		simulator.setLinkConfig(point.getLink());
+		simulator.setTopology(point.getTopology());
+		simulator.setEngine(point.getEngine());
+		if (point.getBurst() > 1) {
+			simulator.setLossModel(GilbertElliottLoss.withBurst(point.getLoss(), point.getBurst()));
+		}
+		if (point.getBitErrorRate() > 0) {
+			simulator.setCorruptionModel(new BitErrorCorruption(point.getBitErrorRate()));
+		}
+
+		// Only the calling thread's CPU time is counted, which leaves out the other logical processes
+		// on the parallel engine
+		ThreadMXBean cpuClock = ManagementFactory.getThreadMXBean();
+		long cpuStart = cpuClock.isCurrentThreadCpuTimeSupported() ? cpuClock.getCurrentThreadCpuTime() : -1;
+		TraceWriter trace = (tracePath != null) ? new TraceWriter(tracePath) : null;
+		simulator.setTraceWriter(trace);
+		long start = System.nanoTime();
+		try {
+			simulator.runSimulator();
+		} finally {
+			if (trace != null) {
+				trace.close();
+			}
+		}
+		long wall = System.nanoTime() - start;
+		long cpu = (cpuStart >= 0) ? cpuClock.getCurrentThreadCpuTime() - cpuStart : -1;
+
+		return new SweepResult(point, simulator.getNetStats(), simulator.getFlowStats(), simulator.getEventCount(),
+				wall, cpu);
+	}
+
+	/**
+	 * @return a simulator for one of the point's flows, with its own traffic
+	 */
+	private static NetworkSimulator createFlow(SweepPoint point, long seed) {
+		NetworkSimulator simulator = point.getProtocol().create(point.getMessages(), point.getLoss(),
+				point.getCorrupt(), point.getDelay(), 0, seed, point.getConfig());
+		simulator.setArrivalProcess(point.getArrivals().create(point.getDelay()));
+		simulator.setMessageSize(point.getSize());
+		return simulator;
+	}
+}
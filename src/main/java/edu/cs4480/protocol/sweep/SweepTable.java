@@ -0,0 +1,73 @@
+package edu.cs4480.protocol.sweep;
+
+import edu.cs4480.protocol.link.LinkConfig;
+import edu.cs4480.protocol.stats.NetStats;
+import edu.cs4480.protocol.transport.TransportConfig;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes sweep results as one CSV table, a row per simulation.
+ */
+public class SweepTable {
+	private static final String HEADER = "index,protocol,messages,flows,loss,corrupt,burst,ber,delay,arrivals,size," +
+			"bandwidth,propagation,jitter,queue,aqm," +
+			"window,rto,timeout,cc,ack,dupacks,buffer,overflow,engine,replication,seed," +
+			"transmitted,dropped,delivered,packets,lost,corrupted,retransmitted,fast_recoveries,timeout_recoveries," +
+			"link_drops,link_queue_mean,link_queue_p99," +
+			"throughput,goodput,latency_p50,latency_p99,latency_p999,queue_mean,queue_p99,retx_p99," +
+			"rtt_mean,rto_mean,rto_max,cwnd_mean,cwnd_max,fairness,events,wall_ms,cpu_ms";
+
+	public static void write(List<SweepResult> results, PrintStream out) {
+		out.println(HEADER);
+		for (SweepResult result : results) {
+			out.println(row(result));
+		}
+	}
+
+	static String row(SweepResult result) {
+		SweepPoint p = result.getPoint();
+		NetStats s = result.getStats();
+		TransportConfig c = p.getConfig();
+		return String.format(Locale.ROOT, "%d,%s,%d,%d,%s,%s,%s,%s,%s,%s,%s,", p.getIndex(), p.getProtocol(),
+				p.getMessages(), p.getFlows(), p.getLoss(), p.getCorrupt(), p.getBurst(), p.getBitErrorRate(), p.getDelay(),
+				p.getArrivals(), p.getSize()) +
+			link(p.getLink()) +
+			String.format(Locale.ROOT, "%d,%s,%s,%s,%s,%d,%d,%s,%s,%d,%d,", c.getWindowSize(), c.getRto(),
+				c.getInitialTimeout(), c.getCongestion(), c.getAck(), c.getDupAckThreshold(), c.getBufferCapacity(),
+				c.getOverflow(), p.getEngine(), p.getReplication(), p.getSeed()) +
+			String.format(Locale.ROOT, "%d,%d,%d,%d,%d,%d,%d,%d,%d,", s.getTransmittedMsgs(), s.getDroppedMsgs(),
+				s.getDeliveredMsgs(), s.getTotalPackets(), s.getLostPackets(), s.getCorruptedPackets(),
+				s.getRetransmittedPackets(), s.getFastRecoveries(), s.getTimeoutRecoveries()) +
+			String.format(Locale.ROOT, "%d,%.3f,%.3f,", s.getLinkDrops(), s.getLinkQueueDelay().getMean(),
+				s.getLinkQueueDelay().getPercentile(0.99)) +
+			String.format(Locale.ROOT, "%.6f,%.6f,%.3f,%.3f,%.3f,%.3f,%.3f,%.0f,", s.getThroughput(), s.getGoodput(),
+				s.getLatency().getPercentile(0.5), s.getLatency().getPercentile(0.99),
+				s.getLatency().getPercentile(0.999), s.getQueueDelay().getMean(), s.getQueueDelay().getPercentile(0.99),
+				s.getRetransmissions().getPercentile(0.99)) +
+			String.format(Locale.ROOT, "%.3f,%.3f,%.3f,%.3f,%.0f,%.6f,%d,%.3f,%s", s.getRtt().getMean(),
+				s.getRto().getMean(), s.getRto().getMax(), s.getCwnd().getMean(), s.getCwnd().getMax(),
+				result.getFlowStats().getFairness(), result.getEvents(), result.getWallNanos() / 1e6,
+				cpu(result.getCpuNanos()));
+	}
+
+	/**
+	 * @return the CPU time in milliseconds, left empty where it could not be measured
+	 */
+	private static String cpu(long nanos) {
+		return nanos < 0 ? "" : String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+	}
+
+	/**
+	 * @return the link columns, left empty for the original channel
+	 */
+	private static String link(LinkConfig link) {
+		if (link == null) {
+			return ",,,,,";
+		}
+		return String.format(Locale.ROOT, "%s,%s,%s,%d,%s,", link.getBandwidth(), link.getPropagationDelay(),
+				link.getJitter(), link.getQueueCapacity(), link.getDiscipline());
+	}
+}
@@ -0,0 +1,97 @@
+package edu.cs4480.protocol.trace;
+
+import java.nio.ByteOrder;
+import java.util.Locale;
+
+/**
+ * The binary trace format. A trace file is a header followed by fixed-size records, one per
+ * thing that happened in a run, all little-endian:
+ * <pre>
+ *   header   magic "NSTR" (4)  version (4)  record size (4)  reserved (4)
+ *   record   time (8, double)  kind (1)  outcome (1)  reserved (2)  entity (4)
+ *            seqnum (4)  acknum (4)  size (4)  extra (4)
+ * </pre>
+ * The entity is the address of the endpoint the record is about, 2f for flow f's A and 2f + 1
+ * for its B. Records that are not about a packet have -1 as their seqnum and acknum. The size is
+ * the length of the packet on the wire or of the message, and the extra field depends on the
+ * kind: the timer id of timer records, the link of forwarding records, and -1 otherwise.
+ */
+public final class Trace {
+	public static final int MAGIC = 0x5254534e; // "NSTR", read little-endian
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 16;
+	public static final int RECORD_SIZE = 32;
+	public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	static final int TIME_OFFSET = 0;
+	static final int KIND_OFFSET = 8;
+	static final int OUTCOME_OFFSET = 9;
+	static final int ENTITY_OFFSET = 12;
+	static final int SEQNUM_OFFSET = 16;
+	static final int ACKNUM_OFFSET = 20;
+	static final int SIZE_OFFSET = 24;
+	static final int EXTRA_OFFSET = 28;
+
+	/**
+	 * What a record is about. The codes are the ordinals, so new kinds go at the end.
+	 */
+	public enum Kind {
+		/** Layer 5 handed a message to A; seqnum is the message's number in its flow */
+		MESSAGE,
+		/** An entity sent a packet; the outcome says what the channel did to it */
+		SEND,
+		/** A router of a topology forwarded a packet onto a link, or the link's queue dropped it */
+		FORWARD,
+		/** A packet arrived at an entity */
+		RECEIVE,
+		/** B delivered a message to layer 5 */
+		DELIVER,
+		/** A timer was started; FAILED if the entity's single timer was already running */
+		TIMER_START,
+		/** A timer was stopped, by stopTimer() or its handle; FAILED if stopTimer() found it not running */
+		TIMER_STOP,
+		/** A timer expired */
+		TIMEOUT;
+
+		private static final Kind[] CODES = values();
+
+		public static Kind of(int code) {
+			if (code < 0 || code >= CODES.length) {
+				throw new IllegalArgumentException("Unknown record kind " + code);
+			}
+			return CODES[code];
+		}
+
+		public static Kind parse(String name) {
+			return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+		}
+	}
+
+	/**
+	 * How it turned out. The codes are the ordinals, so new outcomes go at the end.
+	 */
+	public enum Outcome {
+		/** Nothing went wrong, or there was nothing that could */
+		OK,
+		/** The packet was lost */
+		LOST,
+		/** The packet was corrupted, and sent on */
+		CORRUPTED,
+		/** A link's queue dropped the packet */
+		DROPPED,
+		/** The request failed, e.g. stopping a timer that was not running */
+		FAILED;
+
+		private static final Outcome[] CODES = values();
+
+		public static Outcome of(int code) {
+			if (code < 0 || code >= CODES.length) {
+				throw new IllegalArgumentException("Unknown record outcome " + code);
+			}
+			return CODES[code];
+		}
+	}
+
+	private Trace() {
+	}
+}
@@ -0,0 +1,126 @@
+package edu.cs4480.protocol.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a binary trace, see {@link Trace}, one record at a time. The reader is the current
+ * record: next() moves it on and the getters describe it, so reading a trace allocates nothing
+ * per record. A record cut short at the end of the file, as a run that died leaves behind, is
+ * ignored.
+ */
+public class TraceReader implements Closeable {
+	private static final int BUFFER_RECORDS = 32768;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private int at = -1;
+	private long records;
+
+	/**
+	 * Opens a trace and checks its header.
+	 * @param path the file to read
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if it is not a trace this reader understands
+	 */
+	public TraceReader(String path) throws IOException {
+		channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		buffer = ByteBuffer.allocateDirect(BUFFER_RECORDS * Trace.RECORD_SIZE).order(Trace.ORDER);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(Trace.HEADER_SIZE).order(Trace.ORDER);
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+				// Until the header is full or the file ends
+			}
+			if (header.hasRemaining() || header.getInt(0) != Trace.MAGIC) {
+				throw new IllegalArgumentException(path + " is not a trace");
+			}
+			if (header.getInt(4) != Trace.VERSION || header.getInt(8) != Trace.RECORD_SIZE) {
+				throw new IllegalArgumentException(path + " is a trace of version " + header.getInt(4) +
+						", not " + Trace.VERSION);
+			}
+		} catch (IOException ioe) {
+			channel.close();
+			throw ioe;
+		} catch (IllegalArgumentException iae) {
+			channel.close();
+			throw iae;
+		}
+		buffer.limit(0);
+	}
+
+	/**
+	 * Moves on to the next record.
+	 * @return false at the end of the trace
+	 * @throws IOException if the file cannot be read
+	 */
+	public boolean next() throws IOException {
+		if (at >= 0) {
+			buffer.position(at + Trace.RECORD_SIZE);
+		}
+		if (buffer.remaining() < Trace.RECORD_SIZE) {
+			buffer.compact();
+			while (buffer.position() < Trace.RECORD_SIZE && channel.read(buffer) >= 0) {
+				// Until there is a whole record or the file ends
+			}
+			while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+				// Fill the rest of the buffer with what is there
+			}
+			buffer.flip();
+			if (buffer.remaining() < Trace.RECORD_SIZE) {
+				at = -1;
+				buffer.position(buffer.limit());
+				return false;
+			}
+		}
+		at = buffer.position();
+		records++;
+		return true;
+	}
+
+	/**
+	 * @return the records read so far, including the current one
+	 */
+	public long getRecordCount() {
+		return records;
+	}
+
+	public double getTime() {
+		return buffer.getDouble(at + Trace.TIME_OFFSET);
+	}
+
+	public Trace.Kind getKind() {
+		return Trace.Kind.of(buffer.get(at + Trace.KIND_OFFSET));
+	}
+
+	public Trace.Outcome getOutcome() {
+		return Trace.Outcome.of(buffer.get(at + Trace.OUTCOME_OFFSET));
+	}
+
+	public int getEntity() {
+		return buffer.getInt(at + Trace.ENTITY_OFFSET);
+	}
+
+	public int getSeqnum() {
+		return buffer.getInt(at + Trace.SEQNUM_OFFSET);
+	}
+
+	public int getAcknum() {
+		return buffer.getInt(at + Trace.ACKNUM_OFFSET);
+	}
+
+	public int getSize() {
+		return buffer.getInt(at + Trace.SIZE_OFFSET);
+	}
+
+	public int getExtra() {
+		return buffer.getInt(at + Trace.EXTRA_OFFSET);
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,168 @@
+package edu.cs4480.protocol.trace;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Command line decoder for binary traces. Prints a summary of a trace:
+ *
+ *   TraceTool run.trace
+ *
+ * or decodes its records, one line each, optionally only those of one kind or endpoint, or up to
+ * a number of them:
+ *
+ *   TraceTool --dump --kind send --entity 0 --limit 100 run.trace
+ */
+public class TraceTool {
+	public static void main(String[] argv) throws IOException {
+		boolean dump = false;
+		Trace.Kind kind = null;
+		int entity = -1;
+		long limit = Long.MAX_VALUE;
+		String path = null;
+
+		for (int i = 0; i < argv.length; i++) {
+			String option = argv[i];
+			try {
+				if (option.equals("--dump")) {
+					dump = true;
+				} else if (option.equals("--kind") && i + 1 < argv.length) {
+					kind = Trace.Kind.parse(argv[++i]);
+				} else if (option.equals("--entity") && i + 1 < argv.length) {
+					entity = Integer.parseInt(argv[++i]);
+				} else if (option.equals("--limit") && i + 1 < argv.length) {
+					limit = Long.parseLong(argv[++i]);
+				} else if (!option.startsWith("--") && path == null) {
+					path = option;
+				} else {
+					usage("Unknown option " + option);
+				}
+			} catch (IllegalArgumentException e) {
+				usage("Bad value for " + option + ": " + argv[i]);
+			}
+		}
+		if (path == null) {
+			usage("No trace given");
+		}
+
+		TraceReader in;
+		try {
+			in = new TraceReader(path);
+		} catch (IllegalArgumentException e) {
+			usage(e.getMessage());
+			return;
+		}
+		try {
+			if (dump) {
+				dump(in, kind, entity, limit);
+			} else {
+				summarize(in, kind, entity, limit);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private static boolean matches(TraceReader in, Trace.Kind kind, int entity) {
+		return (kind == null || in.getKind() == kind) && (entity < 0 || in.getEntity() == entity);
+	}
+
+	/**
+	 * Prints the matching records to standard output, one line each.
+	 * @param kind the kind of records to print, or null for all
+	 * @param entity the address of the endpoint whose records to print, or -1 for all
+	 * @param limit the most records to print
+	 * @throws IOException if the trace cannot be read
+	 */
+	public static void dump(TraceReader in, Trace.Kind kind, int entity, long limit) throws IOException {
+		PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16));
+		long printed = 0;
+		while (printed < limit && in.next()) {
+			if (!matches(in, kind, entity)) {
+				continue;
+			}
+			out.printf(Locale.ROOT, "%.6f %-11s %-9s entity %d seq %d ack %d size %d extra %d%n", in.getTime(),
+					in.getKind(), in.getOutcome(), in.getEntity(), in.getSeqnum(), in.getAcknum(), in.getSize(),
+					in.getExtra());
+			printed++;
+		}
+		out.flush();
+	}
+
+	/**
+	 * Prints what the matching records add up to.
+	 */
+	static void summarize(TraceReader in, Trace.Kind kind, int entity, long limit) throws IOException {
+		int kinds = Trace.Kind.values().length;
+		int outcomes = Trace.Outcome.values().length;
+		long[][] counts = new long[kinds][outcomes];
+		long[] bytes = new long[kinds];
+		long matched = 0;
+		int maxEntity = -1;
+		double first = Double.NaN;
+		double last = Double.NaN;
+		long start = System.nanoTime();
+
+		while (matched < limit && in.next()) {
+			if (!matches(in, kind, entity)) {
+				continue;
+			}
+			int k = in.getKind().ordinal();
+			counts[k][in.getOutcome().ordinal()]++;
+			bytes[k] += in.getSize();
+			maxEntity = Math.max(maxEntity, in.getEntity());
+			if (matched == 0) {
+				first = in.getTime();
+			}
+			last = in.getTime();
+			matched++;
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.println("\n-==TRACE SUMMARY==-");
+		System.out.printf(Locale.ROOT, "Records: %d of %d%n", matched, in.getRecordCount());
+		System.out.printf(Locale.ROOT, "Time: %f to %f%n", first, last);
+		System.out.printf(Locale.ROOT, "Flows: %d%n", maxEntity / 2 + 1);
+		for (Trace.Kind k : Trace.Kind.values()) {
+			long total = 0;
+			StringBuilder detail = new StringBuilder();
+			for (Trace.Outcome o : Trace.Outcome.values()) {
+				long n = counts[k.ordinal()][o.ordinal()];
+				total += n;
+				if (n > 0 && o != Trace.Outcome.OK) {
+					detail.append(String.format(Locale.ROOT, "  %s: %d", o, n));
+				}
+			}
+			if (total > 0) {
+				System.out.printf(Locale.ROOT, "%s: %d (%d bytes)%s%n", k, total, bytes[k.ordinal()], detail);
+			}
+		}
+
+		long sends = 0;
+		for (long n : counts[Trace.Kind.SEND.ordinal()]) {
+			sends += n;
+		}
+		if (sends > 0) {
+			long[] send = counts[Trace.Kind.SEND.ordinal()];
+			System.out.printf(Locale.ROOT, "Sent packets lost/corrupted/dropped: %f/%f/%f%n",
+					(double) send[Trace.Outcome.LOST.ordinal()] / sends,
+					(double) send[Trace.Outcome.CORRUPTED.ordinal()] / sends,
+					(double) send[Trace.Outcome.DROPPED.ordinal()] / sends);
+		}
+		if (last > first) {
+			System.out.printf(Locale.ROOT, "Goodput (delivered bytes/time): %f%n",
+					bytes[Trace.Kind.DELIVER.ordinal()] / (last - first));
+		}
+		System.err.printf(Locale.ROOT, "Decoded %d records in %.3f s%n", in.getRecordCount(), seconds);
+	}
+
+	private static void usage(String error) {
+		System.err.println(error);
+		System.err.println("Usage: TraceTool [--dump] [--kind message,send,forward,receive,deliver,timer-start," +
+				"timer-stop,timeout] [--entity n] [--limit n] file");
+		System.exit(1);
+	}
+}
@@ -0,0 +1,96 @@
+package edu.cs4480.protocol.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a binary trace, see {@link Trace}. Records are put into a direct buffer and written to
+ * the file a megabyte at a time, so recording one costs a few stores rather than a formatted
+ * line. A writer is not thread-safe.
+ */
+public class TraceWriter implements Closeable {
+	private static final int BUFFER_RECORDS = 32768;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private long records;
+
+	/**
+	 * Creates the file, or truncates it, and writes the header.
+	 * @param path the file to write
+	 * @throws IOException if the file cannot be created or written
+	 */
+	public TraceWriter(String path) throws IOException {
+		channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		buffer = ByteBuffer.allocateDirect(BUFFER_RECORDS * Trace.RECORD_SIZE).order(Trace.ORDER);
+		buffer.putInt(Trace.MAGIC).putInt(Trace.VERSION).putInt(Trace.RECORD_SIZE).putInt(0);
+	}
+
+	/**
+	 * Appends a record.
+	 * @param entity the address of the endpoint it is about
+	 * @param seqnum the packet's seqnum, the message's number, or -1
+	 * @param acknum the packet's acknum, or -1
+	 * @param size the length of the packet or message, or 0
+	 * @param extra the timer id or link, or -1
+	 * @throws IllegalStateException if the file cannot be written
+	 */
+	public void write(double time, Trace.Kind kind, Trace.Outcome outcome, int entity, int seqnum, int acknum,
+					  int size, int extra) {
+		if (buffer.remaining() < Trace.RECORD_SIZE) {
+			flush();
+		}
+		int at = buffer.position();
+		buffer.putDouble(at + Trace.TIME_OFFSET, time);
+		buffer.put(at + Trace.KIND_OFFSET, (byte) kind.ordinal());
+		buffer.put(at + Trace.OUTCOME_OFFSET, (byte) outcome.ordinal());
+		buffer.putShort(at + Trace.OUTCOME_OFFSET + 1, (short) 0);
+		buffer.putInt(at + Trace.ENTITY_OFFSET, entity);
+		buffer.putInt(at + Trace.SEQNUM_OFFSET, seqnum);
+		buffer.putInt(at + Trace.ACKNUM_OFFSET, acknum);
+		buffer.putInt(at + Trace.SIZE_OFFSET, size);
+		buffer.putInt(at + Trace.EXTRA_OFFSET, extra);
+		buffer.position(at + Trace.RECORD_SIZE);
+		records++;
+	}
+
+	/**
+	 * @return the records written so far
+	 */
+	public long getRecordCount() {
+		return records;
+	}
+
+	/**
+	 * Writes the buffered records to the file.
+	 * @throws IllegalStateException if the file cannot be written
+	 */
+	public void flush() {
+		buffer.flip();
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (IOException ioe) {
+			throw new IllegalStateException("Cannot write the trace", ioe);
+		} finally {
+			buffer.clear();
+		}
+	}
+
+	/**
+	 * Writes the buffered records and closes the file.
+	 */
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+}
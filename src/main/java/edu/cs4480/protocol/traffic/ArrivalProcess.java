@@ -0,0 +1,27 @@
+package edu.cs4480.protocol.traffic;
+
+import java.util.Random;
+
+/**
+ * Decides when layer 5 hands the sender its next message. A process may keep state between
+ * messages, so each sender gets its own copy.
+ */
+public interface ArrivalProcess {
+	/**
+	 * @param rand the source of randomness for this gap
+	 * @return the time from the message just generated to the next one, or
+	 * Double.POSITIVE_INFINITY if there are no more
+	 */
+	double nextGap(Random rand);
+
+	/**
+	 * @return true if the sender always has more to send, so that a full send buffer should hold
+	 * messages back rather than drop them
+	 */
+	boolean isBacklogged();
+
+	/**
+	 * @return a process with the same settings, in its initial state
+	 */
+	ArrivalProcess copy();
+}
@@ -0,0 +1,40 @@
+package edu.cs4480.protocol.traffic;
+
+import java.util.Locale;
+
+/**
+ * The arrival processes that can be picked by name, each built from the mean gap between messages.
+ */
+public enum Arrivals {
+	UNIFORM {
+		public ArrivalProcess create(double meanGap) {
+			return new UniformArrivals(meanGap);
+		}
+	},
+	POISSON {
+		public ArrivalProcess create(double meanGap) {
+			return new PoissonArrivals(meanGap);
+		}
+	},
+	ONOFF {
+		public ArrivalProcess create(double meanGap) {
+			return OnOffArrivals.withMean(meanGap, OnOffArrivals.DEFAULT_BURST_MESSAGES, OnOffArrivals.DEFAULT_SHAPE);
+		}
+	},
+	/** Ignores the mean gap */
+	BULK {
+		public ArrivalProcess create(double meanGap) {
+			return new BulkArrivals();
+		}
+	};
+
+	/**
+	 * @param meanGap the mean time between messages
+	 * @return a new arrival process of this kind
+	 */
+	public abstract ArrivalProcess create(double meanGap);
+
+	public static Arrivals parse(String name) {
+		return valueOf(name.trim().toUpperCase(Locale.ROOT).replace("-", ""));
+	}
+}
@@ -0,0 +1,22 @@
+package edu.cs4480.protocol.traffic;
+
+import java.util.Random;
+
+/**
+ * An always backlogged sender, as in a bulk transfer: the next message is ready as soon as the
+ * last one has been taken, and a full send buffer holds the source back instead of dropping its
+ * messages. Throughput is then limited only by the protocol and the channel.
+ */
+public class BulkArrivals implements ArrivalProcess {
+	public double nextGap(Random rand) {
+		return 0.0;
+	}
+
+	public boolean isBacklogged() {
+		return true;
+	}
+
+	public ArrivalProcess copy() {
+		return this;
+	}
+}
@@ -0,0 +1,59 @@
+package edu.cs4480.protocol.traffic;
+
+import java.util.Random;
+
+/**
+ * The range message sizes are drawn from, uniformly, in characters. A range of one size gives
+ * fixed-size messages.
+ */
+public class MessageSize {
+	private final int min;
+	private final int max;
+
+	public MessageSize(int min, int max) {
+		if (min < 1 || max < min) {
+			throw new IllegalArgumentException("Sizes must satisfy 1 <= min <= max.");
+		}
+		this.min = min;
+		this.max = max;
+	}
+
+	/**
+	 * Parses "n" for a fixed size, or "min-max" for a range.
+	 * @throws IllegalArgumentException if it is neither
+	 */
+	public static MessageSize parse(String text) {
+		String[] parts = text.trim().split("-");
+		if (parts.length == 1) {
+			int size = Integer.parseInt(parts[0].trim());
+			return new MessageSize(size, size);
+		}
+		if (parts.length != 2) {
+			throw new IllegalArgumentException("Expected a size or a range: " + text);
+		}
+		return new MessageSize(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+	}
+
+	public int getMin() {
+		return min;
+	}
+
+	public int getMax() {
+		return max;
+	}
+
+	public boolean isFixed() {
+		return min == max;
+	}
+
+	/**
+	 * @return the size of the next message; fixed sizes take no random draw
+	 */
+	public int next(Random rand) {
+		return isFixed() ? min : min + rand.nextInt(max - min + 1);
+	}
+
+	public String toString() {
+		return isFixed() ? Integer.toString(min) : min + "-" + max;
+	}
+}
@@ -0,0 +1,78 @@
+package edu.cs4480.protocol.traffic;
+
+import java.util.Random;
+
+/**
+ * A bursty on/off source. While on, it sends a message every peak gap; on periods are Pareto
+ * distributed, so some bursts are very long, and off periods are exponential. Many such sources
+ * together give self-similar traffic. The source starts at the beginning of an on period.
+ */
+public class OnOffArrivals implements ArrivalProcess {
+	public static final double DEFAULT_SHAPE = 1.5;
+	public static final double DEFAULT_BURST_MESSAGES = 20;
+
+	private final double peakGap;
+	private final double meanOn;
+	private final double meanOff;
+	private final double shape;
+	private double onLeft = -1;
+
+	/**
+	 * @param peakGap the gap between messages while on
+	 * @param meanOn the mean length of an on period
+	 * @param meanOff the mean length of an off period
+	 * @param shape the Pareto shape of on periods, above 1; the closer to 1, the heavier the tail
+	 */
+	public OnOffArrivals(double peakGap, double meanOn, double meanOff, double shape) {
+		if (peakGap <= 0 || meanOn <= 0 || meanOff < 0) {
+			throw new IllegalArgumentException("Gap and on period must be positive and off period not negative.");
+		}
+		if (shape <= 1) {
+			throw new IllegalArgumentException("Pareto shape must be above 1 for the mean to exist.");
+		}
+		this.peakGap = peakGap;
+		this.meanOn = meanOn;
+		this.meanOff = meanOff;
+		this.shape = shape;
+	}
+
+	/**
+	 * Creates a source that is on half of the time, sends the given number of messages per burst
+	 * on average, and has the given mean gap overall.
+	 */
+	public static OnOffArrivals withMean(double meanGap, double burstMessages, double shape) {
+		if (meanGap <= 0 || burstMessages <= 0) {
+			throw new IllegalArgumentException("Mean gap and burst size must be positive.");
+		}
+		double peakGap = meanGap / 2;
+		double meanOn = burstMessages * peakGap;
+		return new OnOffArrivals(peakGap, meanOn, meanOn, shape);
+	}
+
+	public double nextGap(Random rand) {
+		if (onLeft < 0) {
+			onLeft = pareto(rand);
+		}
+		if (onLeft >= peakGap) {
+			onLeft -= peakGap;
+			return peakGap;
+		}
+		// The next message starts the next on period
+		double gap = onLeft - meanOff * Math.log(1.0 - rand.nextDouble());
+		onLeft = pareto(rand);
+		return gap;
+	}
+
+	public boolean isBacklogged() {
+		return false;
+	}
+
+	public ArrivalProcess copy() {
+		return new OnOffArrivals(peakGap, meanOn, meanOff, shape);
+	}
+
+	private double pareto(Random rand) {
+		double scale = meanOn * (shape - 1) / shape;
+		return scale / Math.pow(1.0 - rand.nextDouble(), 1.0 / shape);
+	}
+}
@@ -0,0 +1,29 @@
+package edu.cs4480.protocol.traffic;
+
+import java.util.Random;
+
+/**
+ * A Poisson process: exponentially distributed gaps with the given mean.
+ */
+public class PoissonArrivals implements ArrivalProcess {
+	private final double meanGap;
+
+	public PoissonArrivals(double meanGap) {
+		if (meanGap <= 0) {
+			throw new IllegalArgumentException("Mean gap must be positive.");
+		}
+		this.meanGap = meanGap;
+	}
+
+	public double nextGap(Random rand) {
+		return -meanGap * Math.log(1.0 - rand.nextDouble());
+	}
+
+	public boolean isBacklogged() {
+		return false;
+	}
+
+	public ArrivalProcess copy() {
+		return this;
+	}
+}
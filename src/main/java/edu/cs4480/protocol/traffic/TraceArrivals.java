@@ -0,0 +1,83 @@
+package edu.cs4480.protocol.traffic;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Replays recorded arrival times, then stops. Traces are text files with one arrival time per
+ * line, counted from the start of the run and in increasing order; blank lines and everything
+ * from a # to the end of a line are ignored.
+ */
+public class TraceArrivals implements ArrivalProcess {
+	private final double[] times;
+	private int next;
+
+	/**
+	 * @param times the arrival times, from 0 up
+	 */
+	public TraceArrivals(double[] times) {
+		for (int i = 0; i < times.length; i++) {
+			if (times[i] < (i == 0 ? 0.0 : times[i - 1])) {
+				throw new IllegalArgumentException("Arrival times must not be negative or decrease.");
+			}
+		}
+		this.times = times.clone();
+	}
+
+	/**
+	 * Reads an arrival trace file.
+	 * @param path the file to read
+	 * @return the process, positioned at the start of the trace
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if a line is not a number, or the times are negative or decrease
+	 */
+	public static TraceArrivals load(String path) throws IOException {
+		double[] times = new double[64];
+		int count = 0;
+		BufferedReader in = new BufferedReader(new FileReader(path));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				int comment = line.indexOf('#');
+				if (comment >= 0) {
+					line = line.substring(0, comment);
+				}
+				line = line.trim();
+				if (line.isEmpty()) {
+					continue;
+				}
+				if (count == times.length) {
+					times = Arrays.copyOf(times, count * 2);
+				}
+				times[count++] = Double.parseDouble(line);
+			}
+		} finally {
+			in.close();
+		}
+		return new TraceArrivals(Arrays.copyOf(times, count));
+	}
+
+	public int getLength() {
+		return times.length;
+	}
+
+	public double nextGap(Random rand) {
+		if (next >= times.length) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double gap = times[next] - (next == 0 ? 0.0 : times[next - 1]);
+		next++;
+		return gap;
+	}
+
+	public boolean isBacklogged() {
+		return false;
+	}
+
+	public ArrivalProcess copy() {
+		return new TraceArrivals(times);
+	}
+}
@@ -0,0 +1,29 @@
+package edu.cs4480.protocol.traffic;
+
+import java.util.Random;
+
+/**
+ * The original arrivals: gaps uniform between 0 and twice the mean.
+ */
+public class UniformArrivals implements ArrivalProcess {
+	private final double meanGap;
+
+	public UniformArrivals(double meanGap) {
+		if (meanGap <= 0) {
+			throw new IllegalArgumentException("Mean gap must be positive.");
+		}
+		this.meanGap = meanGap;
+	}
+
+	public double nextGap(Random rand) {
+		return 2 * meanGap * rand.nextDouble();
+	}
+
+	public boolean isBacklogged() {
+		return false;
+	}
+
+	public ArrivalProcess copy() {
+		return this;
+	}
+}
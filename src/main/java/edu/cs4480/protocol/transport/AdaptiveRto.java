@@ -0,0 +1,68 @@
+package edu.cs4480.protocol.transport;
+
+/**
+ * The smoothed RTT estimator of RFC 6298. The timeout is SRTT + max(G, 4 * RTTVAR), clamped to
+ * [min, max], and doubles on every timeout until a fresh sample arrives.
+ */
+public class AdaptiveRto implements RtoPolicy {
+	private static final double ALPHA = 1.0 / 8;
+	private static final double BETA = 1.0 / 4;
+	private static final double K = 4;
+
+	private final double minTimeout;
+	private final double maxTimeout;
+	private final double granularity;
+	private double srtt;
+	private double rttvar;
+	private double rto;
+	private boolean sampled;
+
+	/**
+	 * @param initial the timeout before the first sample
+	 * @param min the lower bound of the timeout
+	 * @param max the upper bound of the timeout, also for backoff
+	 * @param granularity the clock granularity G
+	 */
+	public AdaptiveRto(double initial, double min, double max, double granularity) {
+		if (min <= 0 || max < min || initial < min || initial > max) {
+			throw new IllegalArgumentException("Timeouts must satisfy 0 < min <= initial <= max.");
+		}
+		this.minTimeout = min;
+		this.maxTimeout = max;
+		this.granularity = granularity;
+		this.rto = initial;
+		this.sampled = false;
+	}
+
+	public double getTimeout() {
+		return rto;
+	}
+
+	public void sample(double rtt) {
+		if (!sampled) {
+			srtt = rtt;
+			rttvar = rtt / 2;
+			sampled = true;
+		} else {
+			rttvar = (1 - BETA) * rttvar + BETA * Math.abs(srtt - rtt);
+			srtt = (1 - ALPHA) * srtt + ALPHA * rtt;
+		}
+		rto = clamp(srtt + Math.max(granularity, K * rttvar));
+	}
+
+	public void backoff() {
+		rto = clamp(rto * 2);
+	}
+
+	public double getSmoothedRtt() {
+		return srtt;
+	}
+
+	public double getRttVariance() {
+		return rttvar;
+	}
+
+	private double clamp(double timeout) {
+		return Math.max(minTimeout, Math.min(maxTimeout, timeout));
+	}
+}
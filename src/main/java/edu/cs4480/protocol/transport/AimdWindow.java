@@ -0,0 +1,74 @@
+package edu.cs4480.protocol.transport;
+
+/**
+ * Additive increase, multiplicative decrease with slow start, counted in packets as in TCP Reno.
+ * Below the slow start threshold the window grows by one packet per ACKed packet, doubling every
+ * round trip; above it, by one packet per round trip. A loss halves the window and a timeout
+ * drops it to one packet. Further losses are ignored until everything that was in flight when
+ * the first one was seen has been acknowledged, so one loss event only halves the window once.
+ */
+public class AimdWindow implements CongestionControl {
+	private static final double MIN_THRESHOLD = 2;
+
+	private final int maxWindow;
+	private double cwnd;
+	private double ssthresh;
+	private int recover;
+	private boolean recovering;
+
+	/**
+	 * @param initial the window to start with
+	 * @param max the largest window allowed, e.g. the receiver's window
+	 */
+	public AimdWindow(int initial, int max) {
+		if (initial < 1 || max < initial) {
+			throw new IllegalArgumentException("Windows must satisfy 1 <= initial <= max.");
+		}
+		this.maxWindow = max;
+		this.cwnd = initial;
+		this.ssthresh = max;
+		this.recovering = false;
+	}
+
+	public int getWindow() {
+		return (int)cwnd;
+	}
+
+	public void onAck(int count, int cumulativeAck) {
+		if (recovering && cumulativeAck >= recover) {
+			recovering = false;
+		}
+		for (int i = 0; i < count; i++) {
+			if (cwnd < ssthresh) {
+				cwnd += 1;
+			} else {
+				cwnd += 1 / cwnd;
+			}
+		}
+		cwnd = Math.min(cwnd, maxWindow);
+	}
+
+	public void onLoss(int nextSeq) {
+		if (recovering) {
+			return;
+		}
+		ssthresh = Math.max(cwnd / 2, MIN_THRESHOLD);
+		cwnd = Math.min(ssthresh, maxWindow);
+		startRecovery(nextSeq);
+	}
+
+	public void onTimeout(int nextSeq) {
+		ssthresh = Math.max(cwnd / 2, MIN_THRESHOLD);
+		cwnd = 1;
+		startRecovery(nextSeq);
+	}
+
+	public double getSlowStartThreshold() {
+		return ssthresh;
+	}
+
+	private void startRecovery(int nextSeq) {
+		recover = nextSeq - 1;
+		recovering = true;
+	}
+}
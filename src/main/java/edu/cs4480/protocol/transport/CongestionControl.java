@@ -0,0 +1,32 @@
+package edu.cs4480.protocol.transport;
+
+/**
+ * Decides how many packets the sender may have in flight, from the ACK, loss and timeout signals
+ * it sees. Sequence numbers are passed in so that a policy can tell which signals belong to the
+ * same loss event.
+ */
+public interface CongestionControl {
+	/**
+	 * @return the number of packets that may be in flight, at least 1
+	 */
+	int getWindow();
+
+	/**
+	 * Called when ACKs acknowledge new packets.
+	 * @param count the number of packets newly acknowledged
+	 * @param cumulativeAck the highest sequence number acknowledged along with all before it
+	 */
+	void onAck(int count, int cumulativeAck);
+
+	/**
+	 * Called when a loss is detected without a timeout, e.g. by a NACK or duplicate ACKs.
+	 * @param nextSeq the next sequence number the sender will use
+	 */
+	void onLoss(int nextSeq);
+
+	/**
+	 * Called when a retransmission timer expires.
+	 * @param nextSeq the next sequence number the sender will use
+	 */
+	void onTimeout(int nextSeq);
+}
@@ -0,0 +1,25 @@
+package edu.cs4480.protocol.transport;
+
+/**
+ * Always uses the same timeout, ignoring RTT samples and timeouts.
+ */
+public class FixedRto implements RtoPolicy {
+	private final double timeout;
+
+	public FixedRto(double timeout) {
+		if (timeout <= 0) {
+			throw new IllegalArgumentException("Timeout must be positive.");
+		}
+		this.timeout = timeout;
+	}
+
+	public double getTimeout() {
+		return timeout;
+	}
+
+	public void sample(double rtt) {
+	}
+
+	public void backoff() {
+	}
+}
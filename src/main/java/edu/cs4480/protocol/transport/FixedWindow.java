@@ -0,0 +1,28 @@
+package edu.cs4480.protocol.transport;
+
+/**
+ * A window that never changes size.
+ */
+public class FixedWindow implements CongestionControl {
+	private final int window;
+
+	public FixedWindow(int window) {
+		if (window < 1) {
+			throw new IllegalArgumentException("Window size must be at least 1.");
+		}
+		this.window = window;
+	}
+
+	public int getWindow() {
+		return window;
+	}
+
+	public void onAck(int count, int cumulativeAck) {
+	}
+
+	public void onLoss(int nextSeq) {
+	}
+
+	public void onTimeout(int nextSeq) {
+	}
+}
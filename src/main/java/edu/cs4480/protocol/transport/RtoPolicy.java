@@ -0,0 +1,22 @@
+package edu.cs4480.protocol.transport;
+
+/**
+ * Decides how long a sender waits for an acknowledgement before retransmitting.
+ */
+public interface RtoPolicy {
+	/**
+	 * @return the timeout to use for the next timer that is started
+	 */
+	double getTimeout();
+
+	/**
+	 * Feeds in a round trip time measured on a packet that was sent only once (Karn's rule).
+	 * @param rtt the time from transmission to acknowledgement
+	 */
+	void sample(double rtt);
+
+	/**
+	 * Called when a retransmission timer expires.
+	 */
+	void backoff();
+}
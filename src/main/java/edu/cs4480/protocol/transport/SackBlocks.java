@@ -0,0 +1,113 @@
+package edu.cs4480.protocol.transport;
+
+/**
+ * Selective acknowledgement ranges carried in an ACK's payload: the runs of packets the receiver
+ * holds beyond its cumulative ACK. Each block is an inclusive range of sequence numbers, written
+ * as text ("5-7,10-10") so that the packet checksum covers it like any other payload.
+ */
+public class SackBlocks {
+	/** At most this many blocks are carried, as with the TCP SACK option */
+	public static final int MAX_BLOCKS = 4;
+
+	private final int[] firsts = new int[MAX_BLOCKS];
+	private final int[] lasts = new int[MAX_BLOCKS];
+	private int count;
+
+	/**
+	 * Adds a block of received packets.
+	 * @param first the first sequence number of the block
+	 * @param last the last sequence number of the block
+	 * @return false if the ACK is already full and the block was left out
+	 */
+	public boolean add(int first, int last) {
+		if (last < first) {
+			throw new IllegalArgumentException("Block ends before it starts: " + first + "-" + last);
+		}
+		if (count == MAX_BLOCKS) {
+			return false;
+		}
+		firsts[count] = first;
+		lasts[count] = last;
+		count++;
+		return true;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public int getFirst(int index) {
+		checkIndex(index);
+		return firsts[index];
+	}
+
+	public int getLast(int index) {
+		checkIndex(index);
+		return lasts[index];
+	}
+
+	/**
+	 * @return true if one of the blocks covers the sequence number
+	 */
+	public boolean contains(int seq) {
+		for (int i = 0; i < count; i++) {
+			if (seq >= firsts[i] && seq <= lasts[i]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the blocks as an ACK payload, empty if there are none
+	 */
+	public String encode() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(firsts[i]).append('-').append(lasts[i]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Reads the blocks from an ACK payload. Malformed blocks are skipped, since a payload that
+	 * passed the checksum may still have been damaged.
+	 * @param payload the payload written by encode()
+	 * @return the blocks, possibly none
+	 */
+	public static SackBlocks decode(String payload) {
+		SackBlocks blocks = new SackBlocks();
+		if (payload == null || payload.isEmpty()) {
+			return blocks;
+		}
+		for (String part : payload.split(",")) {
+			int dash = part.indexOf('-');
+			if (dash <= 0) {
+				continue;
+			}
+			try {
+				int first = Integer.parseInt(part.substring(0, dash));
+				int last = Integer.parseInt(part.substring(dash + 1));
+				if (last >= first && !blocks.add(first, last)) {
+					break;
+				}
+			} catch (NumberFormatException e) {
+				// skip the block
+			}
+		}
+		return blocks;
+	}
+
+	public String toString() {
+		return "[" + encode() + "]";
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package edu.cs4480.protocol.transport;
+
+/**
+ * A bounded FIFO of items waiting to be sent, each stamped with the time it was queued so the
+ * sender can tell how long it waited. Backed by a ring of fixed capacity; nothing is allocated
+ * after construction.
+ * @param <T> the type of the queued items
+ */
+public class SendBuffer<T> {
+	private final Object[] items;
+	private final double[] times;
+	private int head;
+	private int size;
+
+	/**
+	 * @param capacity the number of items the buffer holds at most
+	 */
+	public SendBuffer(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1.");
+		}
+		items = new Object[capacity];
+		times = new double[capacity];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return items.length;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean isFull() {
+		return size == items.length;
+	}
+
+	/**
+	 * Queues an item at the tail.
+	 * @param item the item to queue
+	 * @param time the time it was queued
+	 * @throws IllegalStateException if the buffer is full
+	 */
+	public void add(T item, double time) {
+		if (isFull()) {
+			throw new IllegalStateException("Send buffer is full.");
+		}
+		int tail = (head + size) % items.length;
+		items[tail] = item;
+		times[tail] = time;
+		size++;
+	}
+
+	/**
+	 * @return the time the item at the head was queued
+	 * @throws IllegalStateException if the buffer is empty
+	 */
+	public double peekTime() {
+		if (isEmpty()) {
+			throw new IllegalStateException("Send buffer is empty.");
+		}
+		return times[head];
+	}
+
+	/**
+	 * Removes the item at the head.
+	 * @return the item, or null if the buffer is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public T poll() {
+		if (isEmpty()) {
+			return null;
+		}
+		T item = (T)items[head];
+		items[head] = null;
+		head = (head + 1) % items.length;
+		size--;
+		return item;
+	}
+}
@@ -0,0 +1,257 @@
+package edu.cs4480.protocol.transport;
+
+import java.util.Locale;
+
+/**
+ * Sender and receiver settings shared by the protocol implementations. A config only holds
+ * settings; each run creates its own policy objects from it, so one config can be reused
+ * across runs.
+ */
+public class TransportConfig {
+	public static final int DEFAULT_WINDOW_SIZE = 8;
+	public static final double DEFAULT_TIMEOUT = 500;
+	public static final double MIN_TIMEOUT = 1.0;
+	public static final double MAX_TIMEOUT = 60000;
+	public static final double CLOCK_GRANULARITY = 0.01;
+	public static final int DEFAULT_ACK_EVERY = 2;
+	public static final double DEFAULT_ACK_DELAY = 2.0;
+	public static final int DEFAULT_DUP_ACK_THRESHOLD = 3;
+	public static final int DEFAULT_BUFFER_CAPACITY = 50;
+
+	/**
+	 * How the retransmission timeout is chosen.
+	 */
+	public enum Rto {
+		/** Always the initial timeout */
+		FIXED,
+		/** RFC 6298 estimate from RTT samples, with exponential backoff */
+		ADAPTIVE;
+
+		public static Rto parse(String name) {
+			return valueOf(name.trim().toUpperCase(Locale.ROOT));
+		}
+	}
+
+	/**
+	 * How the number of packets in flight is chosen.
+	 */
+	public enum Congestion {
+		/** Always the window size */
+		FIXED,
+		/** Slow start and AIMD, never more than the window size */
+		AIMD;
+
+		public static Congestion parse(String name) {
+			return valueOf(name.trim().toUpperCase(Locale.ROOT));
+		}
+	}
+
+	/**
+	 * How the Go-Back-N receiver acknowledges packets. Selective Repeat always acknowledges each
+	 * packet individually.
+	 */
+	public enum Ack {
+		/** An ACK per in-order packet, a NACK (the last ACK again) per corrupt or out-of-order one */
+		IMMEDIATE,
+		/** An ACK of the last in-order packet for every packet that arrives intact */
+		CUMULATIVE,
+		/** Cumulative, but in-order packets are acknowledged every ackEvery packets or after ackDelay */
+		DELAYED,
+		/** Cumulative, and out-of-order packets are kept and reported in SACK blocks */
+		SACK;
+
+		public static Ack parse(String name) {
+			return valueOf(name.trim().toUpperCase(Locale.ROOT));
+		}
+	}
+
+	/**
+	 * What the sender does with a message from layer 5 when its window and send buffer are full.
+	 */
+	public enum Overflow {
+		/** Drop the new message */
+		DROP_TAIL,
+		/** Drop the oldest buffered message to make room for the new one */
+		DROP_HEAD,
+		/** Stop layer 5 from generating messages until the buffer has room again */
+		BLOCK;
+
+		public static Overflow parse(String name) {
+			return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+		}
+	}
+
+	private int windowSize = DEFAULT_WINDOW_SIZE;
+	private Rto rto = Rto.FIXED;
+	private double initialTimeout = DEFAULT_TIMEOUT;
+	private Congestion congestion = Congestion.FIXED;
+	private Ack ack = Ack.IMMEDIATE;
+	private int ackEvery = DEFAULT_ACK_EVERY;
+	private double ackDelay = DEFAULT_ACK_DELAY;
+	private int dupAckThreshold = DEFAULT_DUP_ACK_THRESHOLD;
+	private int bufferCapacity = DEFAULT_BUFFER_CAPACITY;
+	private Overflow overflow = Overflow.DROP_TAIL;
+
+	public TransportConfig() {
+	}
+
+	public TransportConfig(TransportConfig other) {
+		this.windowSize = other.windowSize;
+		this.rto = other.rto;
+		this.initialTimeout = other.initialTimeout;
+		this.congestion = other.congestion;
+		this.ack = other.ack;
+		this.ackEvery = other.ackEvery;
+		this.ackDelay = other.ackDelay;
+		this.dupAckThreshold = other.dupAckThreshold;
+		this.bufferCapacity = other.bufferCapacity;
+		this.overflow = other.overflow;
+	}
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	public TransportConfig setWindowSize(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Window size must be at least 1.");
+		}
+		windowSize = size;
+		return this;
+	}
+
+	public Rto getRto() {
+		return rto;
+	}
+
+	public TransportConfig setRto(Rto rto) {
+		this.rto = rto;
+		return this;
+	}
+
+	public double getInitialTimeout() {
+		return initialTimeout;
+	}
+
+	public TransportConfig setInitialTimeout(double timeout) {
+		if (timeout < MIN_TIMEOUT || timeout > MAX_TIMEOUT) {
+			throw new IllegalArgumentException("Timeout must be between " + MIN_TIMEOUT + " and " + MAX_TIMEOUT + ".");
+		}
+		initialTimeout = timeout;
+		return this;
+	}
+
+	public Congestion getCongestion() {
+		return congestion;
+	}
+
+	public TransportConfig setCongestion(Congestion congestion) {
+		this.congestion = congestion;
+		return this;
+	}
+
+	public Ack getAck() {
+		return ack;
+	}
+
+	public TransportConfig setAck(Ack ack) {
+		this.ack = ack;
+		return this;
+	}
+
+	public int getAckEvery() {
+		return ackEvery;
+	}
+
+	/**
+	 * @param count how many in-order packets a delayed ACK covers at most
+	 */
+	public TransportConfig setAckEvery(int count) {
+		if (count < 1) {
+			throw new IllegalArgumentException("ACK count must be at least 1.");
+		}
+		ackEvery = count;
+		return this;
+	}
+
+	public double getAckDelay() {
+		return ackDelay;
+	}
+
+	/**
+	 * @param delay how long a delayed ACK may be held back
+	 */
+	public TransportConfig setAckDelay(double delay) {
+		if (delay <= 0) {
+			throw new IllegalArgumentException("ACK delay must be positive.");
+		}
+		ackDelay = delay;
+		return this;
+	}
+
+	public int getDupAckThreshold() {
+		return dupAckThreshold;
+	}
+
+	/**
+	 * @param count how many duplicate ACKs make the Go-Back-N sender retransmit without waiting
+	 *              for its timer, or 0 to only retransmit on timeouts. The NACKs of the
+	 *              immediate strategy count as duplicates.
+	 */
+	public TransportConfig setDupAckThreshold(int count) {
+		if (count < 0) {
+			throw new IllegalArgumentException("Duplicate ACK threshold must not be negative.");
+		}
+		dupAckThreshold = count;
+		return this;
+	}
+
+	public int getBufferCapacity() {
+		return bufferCapacity;
+	}
+
+	/**
+	 * @param capacity how many messages the sender buffers while its window is full
+	 */
+	public TransportConfig setBufferCapacity(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Buffer capacity must be at least 1.");
+		}
+		bufferCapacity = capacity;
+		return this;
+	}
+
+	public Overflow getOverflow() {
+		return overflow;
+	}
+
+	public TransportConfig setOverflow(Overflow overflow) {
+		this.overflow = overflow;
+		return this;
+	}
+
+	/**
+	 * @return a fresh RTO policy for one run
+	 */
+	public RtoPolicy newRtoPolicy() {
+		if (rto == Rto.ADAPTIVE) {
+			return new AdaptiveRto(initialTimeout, MIN_TIMEOUT, MAX_TIMEOUT, CLOCK_GRANULARITY);
+		}
+		return new FixedRto(initialTimeout);
+	}
+
+	/**
+	 * @return a fresh congestion controller for one run, capped at the window size
+	 */
+	public CongestionControl newCongestionControl() {
+		if (congestion == Congestion.AIMD) {
+			return new AimdWindow(1, windowSize);
+		}
+		return new FixedWindow(windowSize);
+	}
+
+	public String toString() {
+		return "window=" + windowSize + " rto=" + rto + " timeout=" + initialTimeout + " congestion=" + congestion +
+				" ack=" + ack + " buffer=" + bufferCapacity + " overflow=" + overflow;
+	}
+}
@@ -0,0 +1,116 @@
+package edu.cs4480.protocol.transport;
+
+/**
+ * The sender's window of in-flight items, held in a ring indexed by sequence number. The window
+ * covers the consecutive sequence numbers from {@link #getBase()} up to, but not including,
+ * {@link #getNext()}. Any item in it can be looked up in O(1), and sliding the window past k
+ * acknowledged items costs O(k). Nothing is allocated after construction; walk the window with
+ *
+ *   for (int seq = ring.getBase(); seq &lt; ring.getNext(); seq++) { ... ring.get(seq) ... }
+ *
+ * The ring is rounded up to a power of two so a slot is found with a mask, which keeps lookups
+ * cheap for windows of tens of thousands of items.
+ * @param <T> the type of the in-flight items
+ */
+public class WindowRing<T> {
+	private final Object[] items;
+	private final int mask;
+	private final int capacity;
+	private int base;
+	private int next;
+
+	/**
+	 * @param capacity the number of items the window holds at most
+	 * @param firstSeq the sequence number of the first item to be added
+	 */
+	public WindowRing(int capacity, int firstSeq) {
+		if (capacity < 1 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^30.");
+		}
+		int length = Integer.highestOneBit(capacity);
+		if (length < capacity) {
+			length <<= 1;
+		}
+		items = new Object[length];
+		mask = length - 1;
+		this.capacity = capacity;
+		base = firstSeq;
+		next = firstSeq;
+	}
+
+	/**
+	 * @return the sequence number of the oldest item in the window
+	 */
+	public int getBase() {
+		return base;
+	}
+
+	/**
+	 * @return the sequence number the next added item gets
+	 */
+	public int getNext() {
+		return next;
+	}
+
+	public int size() {
+		return next - base;
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	public boolean isEmpty() {
+		return next == base;
+	}
+
+	public boolean isFull() {
+		return size() == capacity;
+	}
+
+	/**
+	 * @return true if the sequence number is in the window
+	 */
+	public boolean contains(int seq) {
+		return seq >= base && seq < next;
+	}
+
+	/**
+	 * Adds an item at the end of the window.
+	 * @param item the item to add
+	 * @return the sequence number it was given
+	 * @throws IllegalStateException if the window is full
+	 */
+	public int add(T item) {
+		if (isFull()) {
+			throw new IllegalStateException("Window is full.");
+		}
+		items[next & mask] = item;
+		return next++;
+	}
+
+	/**
+	 * @param seq a sequence number
+	 * @return the item with that sequence number, or null if it is not in the window
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(int seq) {
+		return contains(seq) ? (T)items[seq & mask] : null;
+	}
+
+	/**
+	 * Removes every item before the given sequence number, moving the base up to it.
+	 * @param newBase the new base, clamped to the end of the window
+	 * @return the number of items removed
+	 */
+	public int slideTo(int newBase) {
+		int end = Math.min(newBase, next);
+		int removed = 0;
+		while (base < end) {
+			items[base & mask] = null;
+			base++;
+			removed++;
+		}
+		return removed;
+	}
+}